@@ -2,18 +2,21 @@ package com.stc.project.configuration;
 
 
 import com.stc.project.core.CrudService;
+import com.stc.project.core.PurgeReport;
 import com.stc.project.model.Apartment;
 import com.stc.project.model.Building;
 import com.stc.project.model.Project;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 
 // một scheduler (bộ lập lịch) trong Spring Boot có chức năng tự động dọn "thùng rác" theo lịch định kỳ.
+@Slf4j
 @EnableScheduling //Bật tính năng lập lịch (scheduling) trong Spring Boot
 @Component
 @Service
@@ -29,10 +32,13 @@ public class AutoDeleteScheduler {
     //Hàm này (Xóa vĩnh viễn các bản ghi quá hạn trong thùng rác có status = 0 và deletedAt < LocalDateTime.now().minusDays(30).)
     @Scheduled(cron = "0 * * * * ?") //được lập lịch chạy mỗi phút một lần.
     public void runAutoCleanup() {
-        buildingService.deleteExpiredTrash();
-        projectService.deleteExpiredTrash();
-        apartmentService.deleteExpiredTrash();
-        System.out.println("✅ Auto cleanup completed at " + java.time.LocalDateTime.now());
+        // xóa từ con lên cha: căn hộ -> tòa nhà -> dự án, bản ghi cha còn sót con sẽ được xóa con kèm theo
+        PurgeReport apartments = apartmentService.deleteExpiredTrash();
+        PurgeReport buildings = buildingService.deleteExpiredTrash();
+        PurgeReport projects = projectService.deleteExpiredTrash();
+        log.info("Auto cleanup completed: {} apartments, {} buildings (+{} children), {} projects (+{} children)",
+                apartments.getRows(), buildings.getRows(), buildings.getChildRows(),
+                projects.getRows(), projects.getChildRows());
     }
 }
 
@@ -0,0 +1,66 @@
+package com.stc.project.configuration;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.TableStructure;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kiểm tra lúc khởi động các bảng <tên bảng>_seq mà Hibernate dùng giả lập sequence trên MySQL (xem IdEntity).
+ * Bảng chưa được tạo hoặc chưa có dòng next_val (quên chạy db/pooled-id-sequences.sql) thì dừng ứng dụng ngay,
+ * thay vì lỗi ở lần INSERT đầu tiên. Database có SEQUENCE thật (H2 khi test) không dùng bảng nên không cần kiểm tra.
+ */
+@Slf4j
+@Component
+public class IdSequenceTableCheck {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceTableCheck(EntityManagerFactory entityManagerFactory, DataSource dataSource) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PostConstruct
+    void checkOnStartup() {
+        check(sequenceTables());
+    }
+
+    // tên bảng giả lập sequence của các entity dùng @GeneratedValue(strategy = SEQUENCE)
+    List<String> sequenceTables() {
+        List<String> tables = new ArrayList<>();
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel().forEachEntityDescriptor(persister -> {
+            if (persister.getGenerator() instanceof SequenceStyleGenerator generator
+                    && generator.getDatabaseStructure() instanceof TableStructure structure) {
+                tables.add(structure.getPhysicalName().render());
+            }
+        });
+        return tables;
+    }
+
+    void check(List<String> tables) {
+        for (String table : tables) {
+            Long rows;
+            try {
+                rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+            } catch (DataAccessException e) {
+                throw new IllegalStateException("Id sequence table " + table + " is missing, run db/pooled-id-sequences.sql", e);
+            }
+            if (rows == null || rows == 0) {
+                throw new IllegalStateException("Id sequence table " + table + " is empty, run db/pooled-id-sequences.sql");
+            }
+        }
+        log.info("Id sequence tables checked: {}", tables);
+    }
+}
@@ -0,0 +1,61 @@
+package com.stc.project.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Đo độ trễ của replica theo chu kỳ (mặc định SHOW REPLICA STATUS, cột Seconds_Behind_Source của MySQL).
+ * Trễ quá max-lag-seconds, replication dừng (giá trị NULL) hoặc không kết nối được -> đọc từ primary cho tới lần đo sau.
+ * Chưa đo lần nào cũng coi như không dùng được.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final JdbcTemplate replica;
+
+    private final String lagQuery;
+
+    private final String lagColumn;
+
+    private final long maxLagSeconds;
+
+    private volatile boolean replicaUsable;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, String lagColumn, long maxLagSeconds) {
+        this.replica = new JdbcTemplate(replica);
+        this.lagQuery = lagQuery;
+        this.lagColumn = lagColumn;
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:5000}")
+    public void check() {
+        Long lag;
+        try {
+            lag = replica.query(lagQuery, rs -> {
+                if (!rs.next()) {
+                    return null;
+                }
+                Object value = rs.getObject(lagColumn);
+                return value == null ? null : ((Number) value).longValue();
+            });
+        } catch (DataAccessException e) {
+            log.warn("Replica lag check failed: {}", e.getMessage());
+            lag = null;
+        }
+        boolean usable = lag != null && lag <= maxLagSeconds;
+        if (usable != replicaUsable) {
+            log.warn("Replica lag {}s (max {}s) -> read-only transactions now go to {}", lag, maxLagSeconds,
+                    usable ? ReadWriteRoutingDataSource.REPLICA : ReadWriteRoutingDataSource.PRIMARY);
+        }
+        replicaUsable = usable;
+    }
+}
@@ -1,19 +1,28 @@
 package com.stc.project.controller;
 
 import com.stc.project.core.CrudController;
+import com.stc.project.core.ImportJob;
 import com.stc.project.model.Apartment;
 import com.stc.project.repository.ApartmentRepository;
 import com.stc.project.service.ApartmentService;
+import com.stc.project.service.ImportService;
+import com.stc.project.utils.SecurityUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/apartments")
@@ -23,6 +32,9 @@ public class ApartmentController extends CrudController<Apartment, Long> {
     private ApartmentService apartmentService;
     private ApartmentRepository apartmentRepository;
 
+    @Autowired
+    private ImportService importService;
+
     @Autowired
     public ApartmentController(ApartmentService service, ApartmentRepository repository) {
         super(service);
@@ -30,4 +42,18 @@ public class ApartmentController extends CrudController<Apartment, Long> {
         this.apartmentRepository = repository;
         this.baseUrl = "/api/apartments";
     }
+
+    // Import căn hộ từ file NDJSON / CSV gửi trong body (cột buildingCode là code tòa nhà), chạy nền.
+    // Trả về 202 + job, hỏi tiến độ / báo cáo lỗi tại GET /import/{jobId}
+    @PostMapping("/import")
+    public ResponseEntity<ImportJob> importApartments(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                                  HttpServletRequest request) throws IOException {
+        logger.info("Import apartments API called by {}", SecurityUtil.getCurrentUserLogin());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(importService.importApartments(request.getInputStream(), format));
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ImportJob importStatus(@PathVariable("jobId") String jobId) {
+        return importService.getApartmentJob(jobId);
+    }
 }
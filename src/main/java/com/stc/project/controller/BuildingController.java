@@ -1,19 +1,28 @@
 package com.stc.project.controller;
 
 import com.stc.project.core.CrudController;
+import com.stc.project.core.ImportJob;
 import com.stc.project.model.Building;
 import com.stc.project.repository.BuildingRepository;
 import com.stc.project.service.BuildingService;
+import com.stc.project.service.ImportService;
+import com.stc.project.utils.SecurityUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/buildings")
@@ -22,6 +31,9 @@ public class BuildingController extends CrudController<Building, Long> {
 
     private BuildingService buildingService;
     private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ImportService importService;
     @Autowired
     public BuildingController(BuildingService service, BuildingRepository repository) {
         super(service);
@@ -35,7 +47,18 @@ public class BuildingController extends CrudController<Building, Long> {
     public long countTotalBuildings() {
         return buildingService.countActiveBuildings();
     }
-}
-
 
+    // Import tòa nhà từ file NDJSON / CSV gửi trong body (cột projectCode là code dự án), chạy nền.
+    // Trả về 202 + job, hỏi tiến độ / báo cáo lỗi tại GET /import/{jobId}
+    @PostMapping("/import")
+    public ResponseEntity<ImportJob> importBuildings(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                                  HttpServletRequest request) throws IOException {
+        logger.info("Import buildings API called by {}", SecurityUtil.getCurrentUserLogin());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(importService.importBuildings(request.getInputStream(), format));
+    }
 
+    @GetMapping("/import/{jobId}")
+    public ImportJob importStatus(@PathVariable("jobId") String jobId) {
+        return importService.getBuildingJob(jobId);
+    }
+}
@@ -0,0 +1,49 @@
+package com.stc.project.controller;
+
+import com.stc.project.core.EntityCacheStats;
+import com.stc.project.rsql.RsqlQueryCache;
+import com.stc.project.rsql.RsqlQueryGuard;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+// Các endpoint theo dõi hiệu năng nội bộ, chỉ ADMIN được xem
+@RestController
+@RequestMapping("/api/monitoring")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class MonitoringController {
+
+    RsqlQueryCache rsqlQueryCache;
+
+    RsqlQueryGuard rsqlQueryGuard;
+
+    EntityCacheStats entityCacheStats;
+
+    // số liệu hit/miss/eviction của cache query RSQL
+    @GetMapping("/rsql-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> rsqlCacheStats() {
+        return rsqlQueryCache.stats();
+    }
+
+    // số query search bị từ chối vì vượt ngân sách chi phí / page size
+    @GetMapping("/rsql-guard")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> rsqlGuardStats() {
+        return rsqlQueryGuard.stats();
+    }
+
+    // hit/miss/put và tỉ lệ hit của từng region second-level cache (project, building)
+    @GetMapping("/entity-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> entityCacheStats() {
+        return entityCacheStats.stats();
+    }
+}
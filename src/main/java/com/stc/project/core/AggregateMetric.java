@@ -0,0 +1,25 @@
+package com.stc.project.core;
+
+import com.stc.project.rsql.RsqlSelector;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+// 1 chỉ số trong /aggregate?metrics=count,sum(price),avg(totalArea): hàm tổng hợp + cột (null với count(*))
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AggregateMetric {
+
+    public enum Function {
+        COUNT, SUM, AVG, MIN, MAX
+    }
+
+    Function function;
+
+    RsqlSelector field;
+
+    // tên cột trong kết quả, vd "count", "sum(price)"
+    String label;
+}
@@ -0,0 +1,32 @@
+package com.stc.project.core;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+// Kết quả của 1 request /batch: số bản ghi thành công / lỗi và kết quả từng phần tử theo đúng thứ tự gửi lên
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BatchResult {
+    int succeeded;
+    int failed;
+    List<Item> items;
+
+    // index: vị trí trong mảng gửi lên, id: id bản ghi đã lưu, error: lý do lỗi (null nếu thành công)
+    @Getter
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static class Item {
+        int index;
+        Long id;
+        String error;
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
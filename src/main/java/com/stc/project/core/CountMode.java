@@ -0,0 +1,23 @@
+package com.stc.project.core;
+
+import com.stc.project.exception.AppException;
+import com.stc.project.exception.ErrorCode;
+
+// Cách tính tổng số bản ghi khi search có phân trang (?count=exact|estimate|none)
+public enum CountMode {
+    // chạy SELECT COUNT(*) mỗi lần như trước
+    EXACT,
+    // dùng số đếm trong SearchCountCache (hết hạn sau TTL hoặc khi entity bị ghi)
+    ESTIMATE,
+    // không đếm, chỉ trả về có trang sau hay không
+    NONE;
+
+    public static CountMode from(String value) {
+        for (CountMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new AppException(ErrorCode.INVALID_COUNT_MODE);
+    }
+}
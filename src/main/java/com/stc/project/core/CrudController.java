@@ -1,5 +1,6 @@
 package com.stc.project.core;
 
+import com.stc.project.exception.AppException;
 import com.stc.project.model.IdEntity;
 import com.stc.project.utils.PaginationUtil;
 import com.stc.project.utils.SecurityUtil;
@@ -7,15 +8,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public abstract class CrudController<T extends IdEntity, ID extends Serializable> {
     private static Logger logger = LoggerFactory.getLogger(CrudController.class);
@@ -25,6 +32,9 @@ public abstract class CrudController<T extends IdEntity, ID extends Serializable
 
     protected CrudService<T, ID> service;
 
+    // giống giới hạn max-page-size mặc định của Pageable
+    private static final int MAX_CURSOR_PAGE_SIZE = 2000;
+
     public CrudController(CrudService<T, ID> service) {
         this.service = service;
     }
@@ -42,6 +52,12 @@ public abstract class CrudController<T extends IdEntity, ID extends Serializable
         return service.findAll();
     }
 
+    //findAll chỉ lấy 1 số cột: ?fields=id,code,name,active
+    @GetMapping(params = "fields")
+    public List<Map<String, Object>> listFields(@RequestParam(value = "fields") String fields) {
+        return service.searchFields(null, fields, Pageable.unpaged(), CountMode.NONE).getContent();
+    }
+
     //findAll có hỗ trợ phân trang
 //    @GetMapping()
 //    public ResponseEntity<List<T>> list(Pageable pageable) {
@@ -53,11 +69,15 @@ public abstract class CrudController<T extends IdEntity, ID extends Serializable
 
     @GetMapping(path = "/search")
 //    @PreAuthorize("hasAnyRole('MANAGER', 'STAFF')")
-    public ResponseEntity<Page<T>> get( @RequestParam(value = "query", required = false) String query, Pageable pageable) {
+    public ResponseEntity<Slice<T>> get( @RequestParam(value = "query", required = false) String query,
+                                         @RequestParam(value = "count", defaultValue = "exact") String count,
+                                         Pageable pageable) {
         try {
-            Page<T> page = service.search(query, pageable);
+            Slice<T> page = service.search(query, pageable, CountMode.from(count));
             HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, baseUrl);
             return new ResponseEntity<>(page, headers, HttpStatus.OK);
+        } catch (AppException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error during search: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -65,6 +85,58 @@ public abstract class CrudController<T extends IdEntity, ID extends Serializable
     }
 
 
+    // Search chỉ lấy 1 số cột: /search?query=...&fields=id,code,name,building.code
+    // Mỗi dòng là 1 object {tên cột: giá trị}, không load entity và các bản ghi cha
+    @GetMapping(path = "/search", params = {"fields", "!cursor"})
+    public ResponseEntity<Slice<Map<String, Object>>> getFields(@RequestParam(value = "query", required = false) String query,
+                                                               @RequestParam(value = "fields") String fields,
+                                                               @RequestParam(value = "count", defaultValue = "exact") String count,
+                                                               Pageable pageable) {
+        Slice<Map<String, Object>> page = service.searchFields(query, fields, pageable, CountMode.from(count));
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, baseUrl);
+        return new ResponseEntity<>(page, headers, HttpStatus.OK);
+    }
+
+    // Thống kê theo nhóm: /aggregate?query=...&groupBy=building.code&metrics=count,sum(price),avg(totalArea)
+    @GetMapping(path = "/aggregate")
+    public List<Map<String, Object>> aggregate(@RequestParam(value = "query", required = false) String query,
+                                               @RequestParam(value = "groupBy", required = false) String groupBy,
+                                               @RequestParam(value = "metrics", defaultValue = "count") String metrics) {
+        return service.aggregate(query, groupBy, metrics);
+    }
+
+    // Phân trang keyset: /search?cursor=&size=20&sort=code,asc (cursor rỗng = trang đầu).
+    // Cursor đi tiếp / đi lùi nằm trong header Link (rel="next" / rel="prev")
+    @GetMapping(path = "/search", params = "cursor")
+    public ResponseEntity<List<T>> scroll(@RequestParam(value = "query", required = false) String query,
+                                          @RequestParam(value = "cursor") String cursor,
+                                          @RequestParam(value = "size", defaultValue = "20") int size,
+                                          Sort sort) {
+        size = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        CursorPage<T> page = service.searchByCursor(query, cursor, size, sort);
+        HttpHeaders headers = PaginationUtil.generateCursorHttpHeaders(page, baseUrl + "/search", query, size, sort);
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+
+    // Xuất toàn bộ kết quả search (cùng query RSQL + phạm vi MANAGER) ra file: /export?query=...&format=csv&sort=code,asc
+    // Dữ liệu được ghi dần ra response trong lúc đọc DB, dùng thay cho findAll khi số bản ghi lớn
+    @GetMapping(path = "/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(value = "query", required = false) String query,
+                                                        @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                                        Sort sort) {
+        String checkedFormat = ExportWriter.checkFormat(format);
+        Specification<T> spec = service.exportSpecification(query);
+        Sort checkedSort = service.exportSort(sort);
+        logger.info("Export API ({}) called by {}", checkedFormat, SecurityUtil.getCurrentUserLogin());
+        StreamingResponseBody body = out -> service.export(spec, checkedSort, checkedFormat, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"export." + checkedFormat + "\"")
+                .contentType(MediaType.parseMediaType(ExportWriter.contentType(checkedFormat)))
+                .body(body);
+    }
+
+
     @PostMapping
     public T create(@RequestBody T entity) {
         // Lấy username người đang đăng nhập để ghi log
@@ -81,6 +153,22 @@ public abstract class CrudController<T extends IdEntity, ID extends Serializable
     }
 
 
+    // Thêm nhiều bản ghi 1 lần, trả về kết quả từng phần tử (phần tử lỗi không làm hỏng các phần tử khác)
+    @PostMapping("/batch")
+    public BatchResult createAll(@RequestBody List<T> entities) {
+        logger.info("Call Batch Create API ({} items) by {}", entities.size(), SecurityUtil.getCurrentUserLogin());
+        return service.createAll(entities);
+    }
+
+
+    // Sửa nhiều bản ghi 1 lần, mỗi phần tử phải có id
+    @PutMapping("/batch")
+    public BatchResult updateAll(@RequestBody List<T> entities) {
+        logger.info("Call Batch Update API ({} items) by {}", entities.size(), SecurityUtil.getCurrentUserLogin());
+        return service.updateAll(entities);
+    }
+
+
     // Vô hiệu hóa 1 đối tượng
     @DeleteMapping("/deactivate/{id}")
     public ResponseEntity<String> deactivate(@PathVariable("id") ID id) {
@@ -103,8 +191,8 @@ public abstract class CrudController<T extends IdEntity, ID extends Serializable
     @DeleteMapping("/moveDeactivateToTrashAll")
     public ResponseEntity<String> moveDeactivateToTrashAll() {
         logger.info("Move To Trash All API called by {}", SecurityUtil.getCurrentUserLogin());
-        service.moveDeactivateToTrashAll();
-        return ResponseEntity.ok("Moved all deactivated records to trash successfully!");
+        long count = service.moveDeactivateToTrashAll();
+        return ResponseEntity.ok("Moved " + count + " deactivated records to trash successfully!");
     }
 
 
@@ -121,16 +209,16 @@ public abstract class CrudController<T extends IdEntity, ID extends Serializable
     @PutMapping("/restoreAllDeactivated")
     public ResponseEntity<String> restoreAllDeactivated() {
         logger.info("Restore All Deactivated API called by {}", SecurityUtil.getCurrentUserLogin());
-        service.restoreAllDeactivated();
-        return ResponseEntity.ok("Restored all deactivated records successfully!");
+        long count = service.restoreAllDeactivated();
+        return ResponseEntity.ok("Restored " + count + " deactivated records successfully!");
     }
 
     // khôi phục lại LIST trường hợp bị xóa mềm
     @PutMapping("/restoreAllFromTrash")
     public ResponseEntity<String> restoreAllFromTrash() {
         logger.info("Restore All From Trash API called by {}", SecurityUtil.getCurrentUserLogin());
-        service.restoreAllFromTrash();
-        return ResponseEntity.ok("Restored all records from trash successfully!");
+        long count = service.restoreAllFromTrash();
+        return ResponseEntity.ok("Restored " + count + " records from trash successfully!");
     }
 
 
@@ -147,16 +235,16 @@ public abstract class CrudController<T extends IdEntity, ID extends Serializable
     @DeleteMapping("/trash/clear")
     public ResponseEntity<String> clearTrash() {
         logger.info("Clear trash API called by {}", SecurityUtil.getCurrentUserLogin());
-        service.clearTrash();
-        return ResponseEntity.ok("Delete all records in trash successfully!");
+        PurgeReport report = service.clearTrash();
+        return ResponseEntity.ok("Deleted " + report.getRows() + " records in trash successfully!");
     }
 
 
     //  Tự động xóa theo thời gian quá hạn (quá 30 ngày trong thùng rác)
     @DeleteMapping("/trash/expired")
     public ResponseEntity<String> deleteExpiredTrash() {
-        service.deleteExpiredTrash();
-        return ResponseEntity.ok("Deleted expired trash (older than 30 days)!");
+        PurgeReport report = service.deleteExpiredTrash();
+        return ResponseEntity.ok("Deleted " + report.getRows() + " expired records in trash (older than 30 days)!");
     }
 
 
@@ -1,52 +1,158 @@
 package com.stc.project.core;
 
-import cz.jirutka.rsql.parser.RSQLParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import cz.jirutka.rsql.parser.RSQLParserException;
-import cz.jirutka.rsql.parser.ast.Node;
 import com.stc.project.constants.Constants;
+import com.stc.project.exception.AppException;
+import com.stc.project.exception.ErrorCode;
 import com.stc.project.model.AbstractEntity;
-import com.stc.project.rsql.CustomRsqlVisitor;
+import com.stc.project.model.IdEntity;
+import com.stc.project.rsql.CompiledRsqlQuery;
+import com.stc.project.rsql.RsqlQueryCache;
+import com.stc.project.rsql.RsqlQueryGuard;
+import com.stc.project.rsql.RsqlSelector;
+import com.stc.project.rsql.RsqlSelectorRegistry;
 import com.stc.project.utils.SecurityUtil;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+// Mặc định transaction đọc-ghi. Các hàm chỉ đọc đánh dấu readOnly: Hibernate không giữ bản snapshot để dirty-check,
+// flush MANUAL, connection JDBC read-only (và đi replica nếu có cấu hình datasource.replica)
 @Transactional
 public class CrudService<T extends AbstractEntity, ID extends Serializable> {
 
     private static Logger logger = LoggerFactory.getLogger(CrudService.class);
 
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
+    private static final Pattern METRIC = Pattern.compile("(?i)(count|sum|avg|min|max)(?:\\((.+)\\))?");
+
     protected CustomJpaRepository<T, ID> repository;
 
+    @Autowired
+    protected RsqlQueryCache queryCache;
+
+    @Autowired
+    protected RsqlSelectorRegistry selectorRegistry;
+
+    @Autowired
+    protected KeysetCursorCodec cursorCodec;
+
+    @Autowired
+    protected SearchCountCache countCache;
+
+    @Autowired
+    protected RsqlQueryGuard queryGuard;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // số id mỗi lần UPDATE hàng loạt
+    @Value("${crud.bulk.chunk-size:1000}")
+    protected int bulkChunkSize;
+
+    // số bản ghi mỗi transaction và số bản ghi tối đa của 1 request /batch
+    @Value("${crud.batch.chunk-size:100}")
+    protected int batchChunkSize;
+
+    @Value("${crud.batch.max-size:5000}")
+    protected int batchMaxSize;
+
+    // số bản ghi mỗi lô khi xóa vĩnh viễn thùng rác
+    @Value("${crud.purge.batch-size:500}")
+    protected int purgeBatchSize;
+
+    // số dòng mỗi lần lấy từ DB khi export (Integer.MIN_VALUE = MySQL trả từng dòng theo stream)
+    @Value("${crud.export.fetch-size:500}")
+    protected int exportFetchSize;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Class<T> entityClass;
+
+    // Lấy class entity từ generic của service con (ProjectService -> Project), bỏ qua lớp proxy của Spring
+    @SuppressWarnings("unchecked")
+    protected Class<T> getEntityClass() {
+        if (entityClass == null) {
+            Class<?>[] types = GenericTypeResolver.resolveTypeArguments(ClassUtils.getUserClass(getClass()), CrudService.class);
+            entityClass = (Class<T>) types[0];
+        }
+        return entityClass;
+    }
+
+    // Biên dịch query RSQL qua cache, các query lặp lại không phải parse lại.
+    // Query vượt ngân sách chi phí của role bị từ chối trước khi chạy SQL
+    protected Specification<T> compileQuery(String query) {
+        CompiledRsqlQuery<T> compiled = queryCache.compile(getEntityClass(), query);
+        queryGuard.checkQuery(compiled.getCost());
+        return compiled.getSpecification();
+    }
+
+    @Transactional(readOnly = true)
     public T get(ID id) {
         return repository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Entity with ID = " + id + " does not exist."));
 
     }
 
+    @Transactional(readOnly = true)
     public List<T> findAll() {
         return repository.findAll();
     }
 
 
+    @Transactional(readOnly = true)
     public Page<T> findAll(Pageable pageable) {
         return repository.findAll(pageable);
     }
 
 
+    @Transactional(readOnly = true)
     public List<T> search(String query) {
         // nếu ko truyền gì cả thì là findAll
         if (StringUtils.isEmpty(query)) {
@@ -54,73 +160,42 @@ public class CrudService<T extends AbstractEntity, ID extends Serializable> {
         }
 
         //nếu có thì là search bằng rsql
-        Node rootNode = new RSQLParser().parse(query);
-        Specification<T> spec = rootNode.accept(new CustomRsqlVisitor<T>());
-        return repository.findAll(spec);
+        return repository.findAll(compileQuery(query));
     }
 
 
     // NEED  TO CHECK
     // Nếu người dùng có role ROLE_MANAGER, thì TỰ ĐỘNG FILL điều kiện createdBy==<username> vào query.
     // Nếu là ROLE_ADMIN, thì giữ nguyên query được truyền
-    public Page<T> search(String query, Pageable pageable) {
+    // countMode: EXACT -> Page có tổng số bản ghi, ESTIMATE -> Page với tổng số lấy từ cache, NONE -> Slice không đếm
+    @Transactional(readOnly = true)
+    public Slice<T> search(String query, Pageable pageable, CountMode countMode) {
         try {
-            String username = SecurityUtil.getCurrentUserLogin();
-
-            logger.info("=== SEARCH DEBUG START ===");
-            logger.info("Username: {}", username);
-            logger.info("Is Admin: {}", SecurityUtil.isAdmin());
-            logger.info("Is Manager: {}", SecurityUtil.isManager());
-            logger.info("Original Query: {}", query);
-
-            // Logic rõ ràng theo role
-            if (SecurityUtil.isAdmin()) {
-                // ADMIN: Xem tất cả records, giữ nguyên query gốc
-                logger.info("ADMIN - Processing original query: {}", query);
-
-                if (!StringUtils.hasText(query)) {
-                    // Không có filter gì, trả về tất cả
-                    logger.info("ADMIN - No query, returning all records");
-                    Page<T> result = repository.findAll(pageable);
-                    logger.info("ADMIN - Result count: {}", result.getTotalElements());
-                    logger.info("=== SEARCH DEBUG END ===");
-                    return result;
-                } else {
-                    // Có query, thực hiện RSQL với query gốc
-                    logger.info("ADMIN - Executing RSQL with original query: {}", query);
-                    Node rootNode = new RSQLParser().parse(query);
-                    Specification<T> spec = rootNode.accept(new CustomRsqlVisitor<T>());
-                    Page<T> result = repository.findAll(spec, pageable);
-                    logger.info("ADMIN - RSQL Result count: {}", result.getTotalElements());
-                    logger.info("=== SEARCH DEBUG END ===");
-                    return result;
-                }
-
-            } else if (SecurityUtil.isManager()) {
-                // MANAGER: Chỉ xem records do chính họ tạo
-                String managerQuery;
-                if (!StringUtils.hasText(query)) {
-                    managerQuery = "createdBy==" + username;
-                } else {
-                    managerQuery = "(" + query + ");createdBy==" + username;
-                }
-
-                logger.info("MANAGER - Modified query: {}", managerQuery);
-                Node rootNode = new RSQLParser().parse(managerQuery);
-                Specification<T> spec = rootNode.accept(new CustomRsqlVisitor<T>());
-                Page<T> result = repository.findAll(spec, pageable);
-                logger.info("MANAGER - Result count: {}", result.getTotalElements());
-                logger.info("=== SEARCH DEBUG END ===");
-                logger.info(spec.toString());
-                return result;
-
-            } else {
-                // Không có role phù hợp, trả về empty
-                logger.warn("User has no valid role (not ADMIN or MANAGER)");
-                logger.info("=== SEARCH DEBUG END ===");
+            if (pageable.isPaged()) {
+                queryGuard.checkPageSize(pageable.getPageSize());
+            }
+            Specification<T> spec = searchSpecification(query);
+            if (spec == null) {
                 return emptyPage();
             }
+            Slice<T> result;
+            switch (countMode) {
+                case NONE:
+                    result = repository.findSlice(spec, pageable);
+                    break;
+                case ESTIMATE:
+                    result = withTotal(repository.findSlice(spec, pageable), spec, query, pageable, countMode);
+                    break;
+                default:
+                    result = repository.findAll(spec, pageable);
+            }
+            logger.debug("{} SEARCH query: {} - count: {} - result size: {}", this.getClass().getSimpleName(), query, countMode, result.getNumberOfElements());
+            return result;
 
+        } catch (AppException ae) {
+            // selector lạ / tham số sai kiểu -> trả lỗi rõ ràng cho client thay vì trang rỗng
+            logger.warn("{} SEARCH rejected: {} - {}", this.getClass().getSimpleName(), query, ae.getErrorCode());
+            throw ae;
         } catch (RSQLParserException pe) {
             logger.error("{} SEARCH RSQLParserException FAIL: {}", this.getClass().getSimpleName(), query);
             return emptyPage();
@@ -130,6 +205,217 @@ public class CrudService<T extends AbstractEntity, ID extends Serializable> {
         }
     }
 
+    // Chỉ lấy các cột trong fields (vd "id,code,name,building.code"), mỗi dòng là 1 Map tên cột -> giá trị.
+    // Dùng chung Specification + phạm vi MANAGER với search, nhưng không dựng entity và không đưa vào persistence context
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> searchFields(String query, String fields, Pageable pageable, CountMode countMode) {
+        List<RsqlSelector> selectors = parseFields(fields);
+        // cột sort cũng phải là selector hợp lệ: cột lạ/nhạy cảm bị từ chối (UNKNOWN_SEARCH_FIELD) thay vì lỗi 500 khi dựng ORDER BY
+        pageable.getSort().forEach(order -> selectorRegistry.resolve(getEntityClass(), order.getProperty()));
+        if (pageable.isPaged()) {
+            queryGuard.checkPageSize(pageable.getPageSize());
+        }
+        Specification<T> spec;
+        try {
+            spec = searchSpecification(query);
+        } catch (RSQLParserException pe) {
+            throw new AppException(ErrorCode.INVALID_SEARCH_QUERY);
+        }
+        if (spec == null) {
+            return new SliceImpl<>(List.of());
+        }
+        Slice<Map<String, Object>> slice = repository.findFields(spec, selectors, pageable);
+        return countMode == CountMode.NONE ? slice : withTotal(slice, spec, query, pageable, countMode);
+    }
+
+    private List<RsqlSelector> parseFields(String fields) {
+        List<RsqlSelector> selectors = resolveSelectors(fields);
+        if (selectors.isEmpty()) {
+            throw new AppException(ErrorCode.UNKNOWN_SEARCH_FIELD);
+        }
+        return selectors;
+    }
+
+    private List<RsqlSelector> resolveSelectors(String fields) {
+        if (!StringUtils.hasText(fields)) {
+            return List.of();
+        }
+        return Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .distinct()
+                .map(field -> selectorRegistry.resolve(getEntityClass(), field))
+                .collect(Collectors.toList());
+    }
+
+    // Thống kê theo nhóm: ?query=...&groupBy=building.code&metrics=count,sum(price),avg(totalArea)
+    // Filter RSQL + phạm vi MANAGER được đưa vào WHERE của chính query GROUP BY
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> aggregate(String query, String groupBy, String metrics) {
+        List<RsqlSelector> groups = resolveSelectors(groupBy);
+        List<AggregateMetric> parsedMetrics = parseMetrics(metrics);
+        Specification<T> spec;
+        try {
+            spec = searchSpecification(query);
+        } catch (RSQLParserException pe) {
+            throw new AppException(ErrorCode.INVALID_SEARCH_QUERY);
+        }
+        if (spec == null) {
+            return List.of();
+        }
+        // đọc thừa 1 nhóm: vượt ngân sách số nhóm của role thì báo lỗi thay vì trả về kết quả bị cắt
+        List<Map<String, Object>> rows = repository.aggregate(spec, groups, parsedMetrics, queryGuard.maxGroups() + 1);
+        queryGuard.checkGroups(rows.size());
+        return rows;
+    }
+
+    // "count", "count(building.code)", "sum(price)", "avg(totalArea)", "min(createdAt)", "max(price)"
+    private List<AggregateMetric> parseMetrics(String metrics) {
+        List<AggregateMetric> result = new ArrayList<>();
+        for (String token : metrics.split(",")) {
+            Matcher matcher = METRIC.matcher(token.trim());
+            if (!matcher.matches()) {
+                throw new AppException(ErrorCode.INVALID_AGGREGATE_METRIC);
+            }
+            AggregateMetric.Function function = AggregateMetric.Function.valueOf(matcher.group(1).toUpperCase());
+            RsqlSelector field = matcher.group(2) == null ? null : selectorRegistry.resolve(getEntityClass(), matcher.group(2).trim());
+            boolean numeric = field != null && Number.class.isAssignableFrom(field.getJavaType());
+            boolean comparable = field != null && Comparable.class.isAssignableFrom(field.getJavaType());
+            if ((function == AggregateMetric.Function.SUM || function == AggregateMetric.Function.AVG) && !numeric
+                    || (function == AggregateMetric.Function.MIN || function == AggregateMetric.Function.MAX) && !comparable) {
+                throw new AppException(ErrorCode.INVALID_AGGREGATE_METRIC);
+            }
+            String label = field == null ? function.name().toLowerCase()
+                    : function.name().toLowerCase() + "(" + field.getSelector() + ")";
+            result.add(new AggregateMetric(function, field, label));
+        }
+        return result;
+    }
+
+    // Gắn tổng số bản ghi vào 1 trang đã lấy (EXACT: đếm, bỏ qua COUNT nếu trang đầu chưa đầy; ESTIMATE: lấy từ cache)
+    private <R> Page<R> withTotal(Slice<R> slice, Specification<T> spec, String query, Pageable pageable, CountMode countMode) {
+        if (countMode == CountMode.ESTIMATE) {
+            long total = countCache.get(getEntityClass(), countFingerprint(query), () -> repository.count(spec));
+            return new PageImpl<>(slice.getContent(), pageable, total);
+        }
+        return PageableExecutionUtils.getPage(slice.getContent(), pageable, () -> repository.count(spec));
+    }
+
+    // createdBy = ? (dùng index (created_by, active, id))
+    protected Specification<T> createdBy(String username) {
+        return (root, query, builder) -> builder.equal(root.get("createdBy"), username);
+    }
+
+    // khóa cache số đếm: query đã chuẩn hóa + phạm vi dữ liệu của user (MANAGER chỉ thấy bản ghi của mình)
+    private String countFingerprint(String query) {
+        String scope = SecurityUtil.isAdmin() ? "" : SecurityUtil.getCurrentUserLogin();
+        return scope + "|" + (StringUtils.hasText(query) ? RsqlQueryCache.normalize(query) : "");
+    }
+
+
+    // Phân trang kiểu keyset (seek): thay vì OFFSET, lấy các dòng nằm sau/trước (sort key, id) của dòng cuối/đầu trang trước.
+    // cursor rỗng = trang đầu tiên. Tốc độ không phụ thuộc trang sâu bao nhiêu.
+    @Transactional(readOnly = true)
+    public CursorPage<T> searchByCursor(String query, String cursor, int size, Sort sort) {
+        queryGuard.checkPageSize(size);
+        Specification<T> spec;
+        try {
+            spec = searchSpecification(query);
+        } catch (RSQLParserException pe) {
+            throw new AppException(ErrorCode.INVALID_SEARCH_QUERY);
+        }
+        if (spec == null) {
+            return CursorPage.empty();
+        }
+        sort.forEach(order -> selectorRegistry.resolve(getEntityClass(), order.getProperty()));
+
+        // cursor gắn với entity + query + user, không dùng lại được cho filter khác
+        String scope = (query == null ? "" : query) + "|" + SecurityUtil.getCurrentUserLogin();
+        KeysetScrollPosition position = cursorCodec.decode(getEntityClass(), scope, cursor, sort);
+        Window<T> window = repository.findBy(spec, q -> q.sortBy(sort).limit(size).scroll(position));
+
+        String nextCursor = null;
+        String previousCursor = null;
+        if (!window.isEmpty()) {
+            Map<String, Object> firstKeys = ((KeysetScrollPosition) window.positionAt(0)).getKeys();
+            Map<String, Object> lastKeys = ((KeysetScrollPosition) window.positionAt(window.size() - 1)).getKeys();
+            // đi lùi: window.hasNext() nghĩa là phía trước vẫn còn dữ liệu
+            boolean hasNext = position.scrollsBackward() || window.hasNext();
+            boolean hasPrevious = position.scrollsBackward() ? window.hasNext() : !position.isInitial();
+            if (hasNext) {
+                nextCursor = cursorCodec.encode(getEntityClass(), scope, ScrollPosition.forward(lastKeys));
+            }
+            if (hasPrevious) {
+                previousCursor = cursorCodec.encode(getEntityClass(), scope, ScrollPosition.backward(firstKeys));
+            }
+        }
+        return new CursorPage<>(window.getContent(), nextCursor, previousCursor);
+    }
+
+
+    // Specification cho /export, dựng trên thread của request vì SecurityContext không đi theo thread ghi response.
+    // null = user không có quyền xem -> file rỗng
+    public Specification<T> exportSpecification(String query) {
+        try {
+            return searchSpecification(query);
+        } catch (RSQLParserException pe) {
+            throw new AppException(ErrorCode.INVALID_SEARCH_QUERY);
+        }
+    }
+
+    // Sort cho /export, kiểm tra trên thread của request như searchFields/searchByCursor: cột lạ/nhạy cảm bị từ chối
+    // (UNKNOWN_SEARCH_FIELD), cột không có index bị RsqlQueryGuard chặn. Không truyền sort thì sắp xếp theo id:
+    // đi theo khóa chính, không phải sort file tạm trên DB
+    public Sort exportSort(Sort sort) {
+        if (sort.isUnsorted()) {
+            return Sort.by("id");
+        }
+        List<RsqlSelector> selectors = sort.stream()
+                .map(order -> selectorRegistry.resolve(getEntityClass(), order.getProperty()))
+                .collect(Collectors.toList());
+        queryGuard.checkExportSort(selectors);
+        return sort;
+    }
+
+    // Ghi toàn bộ kết quả của spec ra out (NDJSON hoặc CSV) trong 1 transaction chỉ đọc.
+    // Bản ghi được đọc qua cursor và ghi ngay, không gom thành List nên bộ nhớ không tăng theo số dòng
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long export(Specification<T> spec, Sort sort, String format, OutputStream out) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        BufferedOutputStream buffered = new BufferedOutputStream(out, EXPORT_BUFFER_SIZE);
+        ExportWriter writer = ExportWriter.open(format, objectMapper, buffered);
+        long rows = 0;
+        if (spec != null) {
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            rows = Objects.requireNonNull(readOnly.execute(status ->
+                    repository.forEach(spec, sort, exportFetchSize, writer::write)));
+        }
+        writer.flush();
+        logger.info("{} exported {} rows as {} in {} ms", getEntityClass().getSimpleName(), rows, format,
+                System.currentTimeMillis() - startedAt);
+        return rows;
+    }
+
+
+    // Specification tìm kiếm theo role của user hiện tại:
+    // ADMIN giữ nguyên query, MANAGER tự động thêm createdBy==<username>,
+    // không có role phù hợp thì không được xem gì -> trả về null
+    protected Specification<T> searchSpecification(String query) {
+        if (SecurityUtil.isAdmin()) {
+            return StringUtils.hasText(query) ? compileQuery(query) : Specification.where(null);
+        }
+        if (SecurityUtil.isManager()) {
+            // MANAGER: Chỉ xem records do chính họ tạo.
+            // Query của user được biên dịch + cache như ADMIN (dùng chung giữa mọi manager),
+            // điều kiện createdBy là Specification riêng với username truyền vào dạng tham số
+            Specification<T> ownership = createdBy(SecurityUtil.getCurrentUserLogin());
+            return StringUtils.hasText(query) ? compileQuery(query).and(ownership) : ownership;
+        }
+        logger.warn("User has no valid role (not ADMIN or MANAGER)");
+        return null;
+    }
+
 
     public T create(T entity) {
         beforeCreate(entity);
@@ -147,6 +433,104 @@ public class CrudService<T extends AbstractEntity, ID extends Serializable> {
     }
 
 
+    // Thêm nhiều bản ghi 1 lần (POST /batch)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BatchResult createAll(List<T> entities) {
+        return saveAll(entities, false);
+    }
+
+    // Sửa nhiều bản ghi 1 lần (PUT /batch), mỗi phần tử phải có id
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BatchResult updateAll(List<T> entities) {
+        return saveAll(entities, true);
+    }
+
+    // Lưu theo từng lô batchChunkSize bản ghi, mỗi lô 1 transaction. Phần tử không qua được validate chỉ bị bỏ qua,
+    // các phần tử còn lại trong lô vẫn được lưu. Nếu cả lô lỗi khi commit (vd trùng code) thì lưu lại từng phần tử
+    // trong transaction riêng để biết phần tử nào lỗi
+    protected BatchResult saveAll(List<T> entities, boolean update) {
+        if (entities.size() > batchMaxSize) {
+            throw new AppException(ErrorCode.BATCH_TOO_LARGE);
+        }
+        TransactionTemplate chunkTransaction = newChunkTransaction();
+        BatchResult.Item[] items = new BatchResult.Item[entities.size()];
+        for (int from = 0; from < entities.size(); from += batchChunkSize) {
+            int chunkFrom = from;
+            List<T> chunk = entities.subList(from, Math.min(from + batchChunkSize, entities.size()));
+            try {
+                chunkTransaction.executeWithoutResult(status -> {
+                    prefetch(chunk, update);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        items[chunkFrom + i] = saveItem(chunkFrom + i, chunk.get(i), update);
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.warn("{} batch chunk {} failed, retrying item by item: {}",
+                        getEntityClass().getSimpleName(), chunkFrom / batchChunkSize, e.getMessage());
+                for (int i = 0; i < chunk.size(); i++) {
+                    int index = chunkFrom + i;
+                    T entity = chunk.get(i);
+                    if (!update) {
+                        // id đã được cấp trong transaction bị rollback
+                        resetId(entity);
+                    }
+                    try {
+                        items[index] = chunkTransaction.execute(status -> saveItem(index, entity, update));
+                    } catch (RuntimeException itemError) {
+                        items[index] = new BatchResult.Item(index, null, itemError.getMessage());
+                    }
+                }
+            }
+        }
+        List<BatchResult.Item> results = Arrays.asList(items);
+        int succeeded = (int) results.stream().filter(BatchResult.Item::isSuccess).count();
+        logger.info("{} batch {}: {} succeeded, {} failed", getEntityClass().getSimpleName(),
+                update ? "update" : "create", succeeded, results.size() - succeeded);
+        return new BatchResult(succeeded, results.size() - succeeded, results);
+    }
+
+    // Lỗi của phần tử được bắt tại đây nên transaction của lô vẫn commit: beforeCreate/beforeUpdate phải validate xong
+    // trước mọi câu ghi (vd UPDATE hàng loạt code của bản ghi con), nếu không phần tử báo lỗi vẫn để lại dữ liệu đã ghi
+    private BatchResult.Item saveItem(int index, T entity, boolean update) {
+        try {
+            if (update) {
+                ID id = idOf(entity);
+                if (id == null) {
+                    throw new IllegalArgumentException("id must not be null.");
+                }
+                update(id, entity);
+            } else {
+                create(entity);
+            }
+            return new BatchResult.Item(index, (Long) idOf(entity), null);
+        } catch (RuntimeException e) {
+            return new BatchResult.Item(index, null, e.getMessage());
+        }
+    }
+
+    // Nạp trước các bản ghi dùng chung của 1 lô bằng findAllById để validate từng phần tử lấy từ persistence context
+    // thay vì mỗi phần tử 1 câu SELECT. Mặc định: các bản ghi sắp sửa (khi update). Service con nạp thêm bản ghi cha
+    protected void prefetch(List<T> entities, boolean update) {
+        if (update) {
+            List<ID> ids = entities.stream().map(this::idOf).filter(Objects::nonNull).distinct().collect(Collectors.toList());
+            if (!ids.isEmpty()) {
+                repository.findAllById(ids);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ID idOf(T entity) {
+        return (ID) entityManagerFactory.getPersistenceUnitUtil().getIdentifier(entity);
+    }
+
+    private void resetId(T entity) {
+        if (entity instanceof IdEntity) {
+            ((IdEntity) entity).setId(null);
+        }
+    }
+
+
     // vô hiệu hóa khi còn hoạt động ( active == 1 )
     public void deactivate(ID id) {
         T t = get(id);
@@ -177,21 +561,11 @@ public class CrudService<T extends AbstractEntity, ID extends Serializable> {
     }
 
 
-    // xóa mêm toàn bộ đối tượng ĐANG bị vô hiệu hóa
-    public void moveDeactivateToTrashAll() {
+    // xóa mêm toàn bộ đối tượng ĐANG bị vô hiệu hóa, trả về số bản ghi đã chuyển
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long moveDeactivateToTrashAll() {
         try {
-            List<T> trashItems = repository.findAll().stream()
-                    .filter(p -> p.getActive() == Constants.EntityStatus.DEACTIVATED)
-                    .collect(Collectors.toList());
-
-            trashItems.forEach(item -> {
-                item.setActive(Constants.EntityStatus.IN_ACTIVE);
-                item.setDeletedAt(LocalDateTime.now());
-                item.setDeactivatedAt(null);
-                item.setUpdatedBy(SecurityUtil.getCurrentUserLogin());
-            });
-
-            repository.saveAll(trashItems);
+            return bulkUpdateStatus(Constants.EntityStatus.DEACTIVATED, trashChanges(), null);
         } catch (Exception e) {
             throw new RuntimeException("Failed to soft-delete all deactivated objects: " + e.getMessage(), e);
         }
@@ -215,49 +589,112 @@ public class CrudService<T extends AbstractEntity, ID extends Serializable> {
     }
 
 
-    // khôi phục lại toàn bộ trường hợp bị vô hiệu hóa
-    public void restoreAllDeactivated() {
+    // khôi phục lại toàn bộ trường hợp bị vô hiệu hóa, trả về số bản ghi đã khôi phục.
+    // Điều kiện của beforeRestore (cha phải ACTIVE) nằm trong câu UPDATE, bản ghi có cha chưa active được giữ nguyên
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long restoreAllDeactivated() {
         try {
-            List<T> deactivatedItems = repository.findAll().stream()
-                    .filter(e -> e.getActive() == Constants.EntityStatus.DEACTIVATED)
-                    .collect(Collectors.toList());
-
-            for (T item : deactivatedItems) {
-                //kiểm tra điều kiện trước khi khôi phục
-                beforeRestore(item);
-                item.setActive(Constants.EntityStatus.ACTIVE);
-                item.setDeactivatedAt(null);
-                item.setUpdatedBy(SecurityUtil.getCurrentUserLogin());
-            }
-
-            repository.saveAll(deactivatedItems);
+            Map<String, Object> changes = new LinkedHashMap<>();
+            changes.put("active", Constants.EntityStatus.ACTIVE);
+            changes.put("deactivatedAt", null);
+            changes.put("updatedBy", SecurityUtil.getCurrentUserLogin());
+            changes.put("updatedAt", LocalDateTime.now());
+            return bulkUpdateStatus(Constants.EntityStatus.DEACTIVATED, changes, restoreParent());
         } catch (Exception e) {
             throw new RuntimeException("Failed to restore all deactivated objects: "	 + e.getMessage(), e);
         }
     }
 
-    // khôi phục lại toàn bộ trường hợp bị xóa mềm
-    public void restoreAllFromTrash() {
+    // khôi phục lại toàn bộ trường hợp bị xóa mềm, trả về số bản ghi đã khôi phục
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long restoreAllFromTrash() {
         try {
-            List<T> trashItems = repository.findAll().stream()
-                    .filter(e -> e.getActive() == Constants.EntityStatus.IN_ACTIVE)
-                    .collect(Collectors.toList());
-
-            for (T item : trashItems) {
-                //kiểm tra điều kiện trước khi khôi phục
-                beforeRestore(item);
-                item.setActive(Constants.EntityStatus.ACTIVE);
-                item.setDeletedAt(null);
-                item.setUpdatedBy(SecurityUtil.getCurrentUserLogin());
-            }
-
-            repository.saveAll(trashItems);
+            Map<String, Object> changes = new LinkedHashMap<>();
+            changes.put("active", Constants.EntityStatus.ACTIVE);
+            changes.put("deletedAt", null);
+            changes.put("updatedBy", SecurityUtil.getCurrentUserLogin());
+            changes.put("updatedAt", LocalDateTime.now());
+            return bulkUpdateStatus(Constants.EntityStatus.IN_ACTIVE, changes, restoreParent());
         } catch (Exception e) {
             throw new RuntimeException("Failed to restore all soft-deleted objects:"	 + e.getMessage(), e);
         }
     }
 
 
+    // Cập nhật hàng loạt các bản ghi có active = fromActive bằng UPDATE theo từng lô bulkChunkSize bản ghi,
+    // mỗi lô chạy trong 1 transaction riêng nên không giữ lock trên cả bảng quá lâu.
+    // Cận trên của lô lấy theo keyset (id > id cuối lô trước) nên id thưa không sinh ra các lô rỗng
+    protected long bulkUpdateStatus(Integer fromActive, Map<String, Object> changes, String activeParent) {
+        TransactionTemplate chunkTransaction = newChunkTransaction();
+        long affected = 0;
+        long lastId = 0;
+        Long chunkEnd;
+        while ((chunkEnd = repository.findChunkEndIdByActive(fromActive, lastId, bulkChunkSize)) != null) {
+            long chunkFrom = lastId + 1;
+            long chunkTo = chunkEnd;
+            Integer updated = chunkTransaction.execute(status ->
+                    repository.bulkUpdateByActive(fromActive, changes, activeParent, chunkFrom, chunkTo));
+            affected += updated == null ? 0 : updated;
+            lastId = chunkEnd;
+        }
+        // UPDATE hàng loạt không đi qua event của Hibernate
+        countCache.invalidate(getEntityClass());
+        logger.info("{} bulk update from active={} - {} rows", getEntityClass().getSimpleName(), fromActive, affected);
+        return affected;
+    }
+
+
+    // Cột thay đổi khi vô hiệu hóa, dùng cho UPDATE hàng loạt (giống deactivate)
+    protected Map<String, Object> deactivateChanges() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("active", Constants.EntityStatus.DEACTIVATED);
+        changes.put("deactivatedAt", now);
+        changes.put("updatedBy", SecurityUtil.getCurrentUserLogin());
+        changes.put("updatedAt", now);
+        return changes;
+    }
+
+    // Cột thay đổi khi chuyển vào thùng rác, dùng cho UPDATE hàng loạt (giống moveToTrash)
+    protected Map<String, Object> trashChanges() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("active", Constants.EntityStatus.IN_ACTIVE);
+        changes.put("deletedAt", now);
+        changes.put("deactivatedAt", null);
+        changes.put("updatedBy", SecurityUtil.getCurrentUserLogin());
+        changes.put("updatedAt", now);
+        return changes;
+    }
+
+    // Chạy cascade cho danh sách id bản ghi cha theo từng lô bulkChunkSize id, mỗi lô 1 transaction riêng.
+    // Trả về tổng số bản ghi con đã cập nhật
+    protected long cascadeInChunks(List<Long> parentIds, ToLongFunction<List<Long>> cascade) {
+        TransactionTemplate chunkTransaction = newChunkTransaction();
+        long affected = 0;
+        for (int from = 0; from < parentIds.size(); from += bulkChunkSize) {
+            List<Long> chunk = parentIds.subList(from, Math.min(from + bulkChunkSize, parentIds.size()));
+            Long updated = chunkTransaction.execute(status -> cascade.applyAsLong(chunk));
+            affected += updated == null ? 0 : updated;
+        }
+        return affected;
+    }
+
+
+    // Đổi tiền tố code oldCode -> newCode cho các bản ghi con (children) thuộc bản ghi cha parentId,
+    // mỗi lần UPDATE tối đa bulkChunkSize id, chạy trong transaction của hàm gọi. Trả về số bản ghi đã đổi code
+    protected long renameChildCodes(CustomJpaRepository<?, ?> children, String parentPath, Long parentId,
+                                    String oldCode, String newCode) {
+        List<Long> ids = children.findIdsByParentAndCodePrefix(parentPath, parentId, oldCode);
+        long renamed = 0;
+        for (int from = 0; from < ids.size(); from += bulkChunkSize) {
+            renamed += children.replaceCodePrefix(ids.subList(from, Math.min(from + bulkChunkSize, ids.size())), oldCode, newCode);
+        }
+        logger.info("{} {} code {} -> {}: {} child rows renamed", getEntityClass().getSimpleName(), parentId, oldCode, newCode, renamed);
+        return renamed;
+    }
+
+
     // xóa vĩnh viễn 1 đối tượng bằng id trong thùng rác
     public void deleteById(ID id) {
         T entity = get(id);
@@ -266,12 +703,10 @@ public class CrudService<T extends AbstractEntity, ID extends Serializable> {
 
 
     // xóa vĩnh viễn toàn bộ trong thùng rác
-    public void clearTrash() {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PurgeReport clearTrash() {
         try {
-            List<T> trashItems = repository.findAll().stream()
-                    .filter(e -> e.getActive() == Constants.EntityStatus.IN_ACTIVE)
-                    .collect(Collectors.toList());
-            repository.deleteAll(trashItems);
+            return purgeTrash(null);
         } catch (Exception e) {
             throw new RuntimeException("Failed to delete all objects in the trash: "	 + e.getMessage(), e);
         }
@@ -279,21 +714,74 @@ public class CrudService<T extends AbstractEntity, ID extends Serializable> {
 
 
     //  tự động xóa theo thời gian quá hạn (quá 30 ngày trong thùng rác)
-    public void deleteExpiredTrash() {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PurgeReport deleteExpiredTrash() {
         try {
             //tính Mốc thời gian 30 ngày trước kể từ hiện tại
             //ví dụ hnay là 17/5 thì expiredTime = 17/4
             LocalDateTime expiredTime = LocalDateTime.now().minusDays(30);
-            List<T> expired = repository.findAll().stream()
-                    .filter(e -> e.getActive() == Constants.EntityStatus.IN_ACTIVE && e.getDeletedAt().isBefore(expiredTime))
-                    .collect(Collectors.toList());
-            repository.deleteAll(expired);
+            return purgeTrash(expiredTime);
         } catch (Exception e) {
             throw new RuntimeException("Failed to delete expired items in the trash: " + e.getMessage(), e);
         }
     }
 
 
+    // Xóa vĩnh viễn theo từng lô purgeBatchSize bản ghi, mỗi lô 1 transaction:
+    // lấy id qua index (active, deleted_at) -> xóa bản ghi con (beforePurge) -> DELETE ... WHERE id IN (...)
+    protected PurgeReport purgeTrash(LocalDateTime before) {
+        long start = System.currentTimeMillis();
+        TransactionTemplate batchTransaction = newChunkTransaction();
+        long rows = 0;
+        long childRows = 0;
+        int batches = 0;
+        while (true) {
+            long[] deleted = batchTransaction.execute(status -> {
+                List<Long> ids = repository.findTrashIds(before, purgeBatchSize);
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                long children = beforePurge(ids);
+                repository.deleteAllByIdInBatch(castIds(ids));
+                return new long[]{ids.size(), children};
+            });
+            if (deleted == null) {
+                break;
+            }
+            rows += deleted[0];
+            childRows += deleted[1];
+            batches++;
+            if (deleted[0] < purgeBatchSize) {
+                break;
+            }
+        }
+        if (rows > 0) {
+            countCache.invalidate(getEntityClass());
+        }
+        PurgeReport report = new PurgeReport(getEntityClass().getSimpleName(), rows, childRows, batches,
+                System.currentTimeMillis() - start);
+        logger.info("Purged trash: {}", report);
+        return report;
+    }
+
+    // Xóa các bản ghi con của 1 lô bản ghi cha sắp bị xóa vĩnh viễn (thay cho CascadeType.ALL khi xóa bằng JPQL),
+    // trả về số bản ghi con đã xóa. Mặc định không có bản ghi con
+    protected long beforePurge(List<Long> ids) {
+        return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ID> castIds(List<Long> ids) {
+        return (List<ID>) (List<?>) ids;
+    }
+
+    private TransactionTemplate newChunkTransaction() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transaction;
+    }
+
+
     protected void beforeCreate(T entity) {
         if (entity.getCreatedBy() == null) {
             entity.setCreatedBy(SecurityUtil.getCurrentUserLogin());
@@ -318,6 +806,13 @@ public class CrudService<T extends AbstractEntity, ID extends Serializable> {
     }
 
 
+    // Association tới bản ghi cha phải ACTIVE thì bản ghi con mới được khôi phục hàng loạt (tương ứng beforeRestore),
+    // null = không có ràng buộc
+    protected String restoreParent() {
+        return null;
+    }
+
+
     public void delete(T entity) {
         beforeDelete(entity);
         repository.delete(entity);
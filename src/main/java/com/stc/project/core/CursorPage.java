@@ -0,0 +1,22 @@
+package com.stc.project.core;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+// Kết quả 1 trang của phân trang keyset: dữ liệu + cursor để đi tiếp / đi lùi (null nếu hết dữ liệu theo chiều đó)
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CursorPage<T> {
+    List<T> content;
+    String nextCursor;
+    String previousCursor;
+
+    public static <T> CursorPage<T> empty() {
+        return new CursorPage<>(List.of(), null, null);
+    }
+}
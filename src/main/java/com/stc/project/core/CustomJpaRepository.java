@@ -1,12 +1,63 @@
 package com.stc.project.core;
 
+import com.stc.project.rsql.RsqlSelector;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.NoRepositoryBean;
 
 import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 // Đánh dấu một interface repository cơ sở (base interface) không được Spring tạo implementation tự động (sinh ra code thực thi cho các repository)
+// Các method thêm vào đây được cài đặt trong CustomJpaRepositoryImpl
 @NoRepositoryBean
 public interface CustomJpaRepository<T, ID extends Serializable> extends JpaRepository<T,ID>, JpaSpecificationExecutor<T> {
+
+    // Lấy 1 trang nhưng không chạy SELECT COUNT(*): đọc thừa 1 dòng để biết còn trang sau hay không
+    Slice<T> findSlice(Specification<T> spec, Pageable pageable);
+
+    // Query tuple chỉ lấy các cột được chọn, không dựng entity. Cũng đọc thừa 1 dòng để biết còn trang sau
+    Slice<Map<String, Object>> findFields(Specification<T> spec, List<RsqlSelector> fields, Pageable pageable);
+
+    // 1 query GROUP BY duy nhất: mỗi dòng gồm các cột group + các chỉ số tổng hợp, trả về tối đa limit nhóm
+    List<Map<String, Object>> aggregate(Specification<T> spec, List<RsqlSelector> groupBy, List<AggregateMetric> metrics, int limit);
+
+    // id lớn nhất trong chunkSize bản ghi kế tiếp có active = status và id > afterId (WHERE id > ? ORDER BY id LIMIT ?),
+    // null nếu không còn bản ghi nào. Dùng làm cận trên của 1 lô UPDATE theo keyset
+    Long findChunkEndIdByActive(Integer active, long afterId, int chunkSize);
+
+    // id của tối đa limit bản ghi trong thùng rác (active = 0, deleted_at < before; before = null: tất cả), tăng dần theo id.
+    // Đi qua index (active, deleted_at)
+    List<Long> findTrashIds(LocalDateTime before, int limit);
+
+    // UPDATE ... SET <assignments> WHERE active = ? AND id BETWEEN fromId AND toId,
+    // activeParent != null: chỉ cập nhật bản ghi có bản ghi cha (association activeParent) đang ACTIVE
+    int bulkUpdateByActive(Integer active, Map<String, Object> assignments, String activeParent, long fromId, long toId);
+
+    // UPDATE ... SET <assignments> WHERE active IN fromActive AND bản ghi cha (parentPath, vd "building" / "building.project")
+    // có id trong parentIds; parentActive != null: chỉ cập nhật bản ghi có cha trực tiếp đang ở 1 trong các trạng thái đó
+    int bulkUpdateByParent(Collection<Integer> fromActive, Map<String, Object> assignments, String parentPath,
+                           Collection<Integer> parentActive, Collection<Long> parentIds);
+
+    // id các bản ghi đang ở trạng thái active, tăng dần
+    List<Long> findIdsByActive(Integer active);
+
+    // id các bản ghi thuộc bản ghi cha parentId (parentPath, vd "project" / "building.project") có code bắt đầu bằng codePrefix
+    List<Long> findIdsByParentAndCodePrefix(String parentPath, Long parentId, String codePrefix);
+
+    // UPDATE ... SET code = newPrefix + phần sau oldPrefix WHERE id IN ids AND code LIKE 'oldPrefix%'
+    int replaceCodePrefix(Collection<Long> ids, String oldPrefix, String newPrefix);
+
+    // Duyệt kết quả theo cursor chỉ đọc tiến (fetchSize dòng mỗi lần lấy), bản ghi cha @ManyToOne được fetch join.
+    // Persistence context (cả bản ghi cha) được xóa sau mỗi fetchSize dòng và khi duyệt xong nên không phình theo số dòng,
+    // vì vậy chỉ gọi trong transaction riêng cho việc duyệt (export). Trả về số dòng
+    long forEach(Specification<T> spec, Sort sort, int fetchSize, Consumer<T> action);
 }
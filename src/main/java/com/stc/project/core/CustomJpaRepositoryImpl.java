@@ -0,0 +1,407 @@
+package com.stc.project.core;
+
+import com.stc.project.constants.Constants;
+import com.stc.project.rsql.RsqlSelector;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.criteria.Subquery;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Implementation chung cho mọi repository (khai báo qua @EnableJpaRepositories(repositoryBaseClass = ...))
+public class CustomJpaRepositoryImpl<T, ID extends Serializable> extends SimpleJpaRepository<T, ID>
+        implements CustomJpaRepository<T, ID> {
+
+    private static final char LIKE_ESCAPE = '!';
+
+    // số dòng giữa 2 lần xóa persistence context trong forEach khi không có fetchSize dương
+    private static final int DEFAULT_CLEAR_INTERVAL = 500;
+
+    private final EntityManager entityManager;
+
+    public CustomJpaRepositoryImpl(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
+        super(entityInformation, entityManager);
+        this.entityManager = entityManager;
+    }
+
+    // Mọi query đọc entity của SimpleJpaRepository (findAll, findAll(spec, pageable), findSlice, scroll keyset...) đi qua đây.
+    // Thêm load graph lấy luôn các bản ghi cha @ManyToOne trong cùng câu SELECT: getter buildingName/projectCode...
+    // khi serialize không còn bắn 1 SELECT cha cho mỗi dòng. Câu COUNT đi đường getCountQuery nên không bị join thêm
+    @Override
+    protected <S extends T> TypedQuery<S> getQuery(Specification<S> spec, Class<S> domainClass, Sort sort) {
+        TypedQuery<S> query = super.getQuery(spec, domainClass, sort);
+        Map<String, Object> hints = query.getHints();
+        // method repository đã khai báo @EntityGraph riêng thì giữ nguyên
+        if (hints.containsKey(SpecHints.HINT_SPEC_FETCH_GRAPH) || hints.containsKey(SpecHints.HINT_SPEC_LOAD_GRAPH)) {
+            return query;
+        }
+        EntityGraph<T> parents = parentGraph();
+        if (parents != null) {
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, parents);
+        }
+        return query;
+    }
+
+    // Graph gồm các association @ManyToOne trực tiếp của entity, null nếu entity không có
+    private EntityGraph<T> parentGraph() {
+        EntityGraph<T> graph = null;
+        for (SingularAttribute<? super T, ?> attribute : entityManager.getMetamodel().entity(getDomainClass()).getSingularAttributes()) {
+            if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.MANY_TO_ONE) {
+                if (graph == null) {
+                    graph = entityManager.createEntityGraph(getDomainClass());
+                }
+                graph.addAttributeNodes(attribute.getName());
+            }
+        }
+        return graph;
+    }
+
+    @Override
+    public Slice<T> findSlice(Specification<T> spec, Pageable pageable) {
+        TypedQuery<T> query = getQuery(spec, pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(query.getResultList());
+        }
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1);
+        List<T> content = query.getResultList();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    @Override
+    public Slice<Map<String, Object>> findFields(Specification<T> spec, List<RsqlSelector> fields, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<T> root = query.from(getDomainClass());
+        Predicate predicate = spec.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        // cột của bản ghi cha dùng lại join của filter, chưa có thì LEFT JOIN để dòng không có cha vẫn được trả về (giá trị null)
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (RsqlSelector field : fields) {
+            selections.add(field.toSelectionPath(root));
+        }
+        query.multiselect(selections);
+        query.orderBy(toOrders(pageable.getSort(), root, builder));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize() + 1);
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : typedQuery.getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                row.put(fields.get(i).getSelector(), tuple.get(i));
+            }
+            rows.add(row);
+        }
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(rows);
+        }
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    // ORDER BY theo các cột đã được kiểm tra qua RsqlSelectorRegistry ở service,
+    // cột của bản ghi cha cũng dùng lại join có sẵn thay vì join thêm như QueryUtils.toOrders
+    private static List<Order> toOrders(Sort sort, Root<?> root, CriteriaBuilder builder) {
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            String[] parts = order.getProperty().split("\\.");
+            From<?, ?> from = root;
+            for (int i = 0; i < parts.length - 1; i++) {
+                from = RsqlSelector.joinForSelection(from, parts[i]);
+            }
+            Path<?> path = from.get(parts[parts.length - 1]);
+            orders.add(order.isAscending() ? builder.asc(path) : builder.desc(path));
+        }
+        return orders;
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<Map<String, Object>> aggregate(Specification<T> spec, List<RsqlSelector> groupBy, List<AggregateMetric> metrics, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<T> root = query.from(getDomainClass());
+        Predicate predicate = spec.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        // cột group/metric của bản ghi cha dùng lại join của filter, chưa có thì LEFT JOIN
+        List<Expression<?>> groups = new ArrayList<>(groupBy.size());
+        for (RsqlSelector field : groupBy) {
+            groups.add(field.toSelectionPath(root));
+        }
+        List<Selection<?>> selections = new ArrayList<>(groups);
+        for (AggregateMetric metric : metrics) {
+            Expression path = metric.getField() == null ? root : metric.getField().toSelectionPath(root);
+            switch (metric.getFunction()) {
+                case COUNT:
+                    selections.add(builder.count(path));
+                    break;
+                case SUM:
+                    selections.add(builder.sum(path));
+                    break;
+                case AVG:
+                    selections.add(builder.avg(path));
+                    break;
+                case MIN:
+                    selections.add(builder.least(path));
+                    break;
+                case MAX:
+                    selections.add(builder.greatest(path));
+                    break;
+            }
+        }
+        query.multiselect(selections);
+        if (!groups.isEmpty()) {
+            query.groupBy(groups);
+            query.orderBy(groups.stream().map(builder::asc).collect(Collectors.toList()));
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).setMaxResults(limit).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            int i = 0;
+            for (RsqlSelector field : groupBy) {
+                row.put(field.getSelector(), tuple.get(i++));
+            }
+            for (AggregateMetric metric : metrics) {
+                row.put(metric.getLabel(), tuple.get(i++));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Override
+    public Long findChunkEndIdByActive(Integer active, long afterId, int chunkSize) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<T> root = query.from(getDomainClass());
+        query.select(root.get("id"))
+                .where(builder.equal(root.get("active"), active), builder.greaterThan(root.get("id"), afterId))
+                .orderBy(builder.asc(root.get("id")));
+        List<Long> ids = entityManager.createQuery(query).setMaxResults(chunkSize).getResultList();
+        return ids.isEmpty() ? null : ids.get(ids.size() - 1);
+    }
+
+    @Override
+    public List<Long> findTrashIds(LocalDateTime before, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<T> root = query.from(getDomainClass());
+        Predicate trashed = builder.equal(root.get("active"), Constants.EntityStatus.IN_ACTIVE);
+        if (before != null) {
+            trashed = builder.and(trashed, builder.lessThan(root.get("deletedAt"), before));
+        }
+        query.select(root.get("id")).where(trashed).orderBy(builder.asc(root.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public int bulkUpdateByActive(Integer active, Map<String, Object> assignments, String activeParent, long fromId, long toId) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = builder.createCriteriaUpdate(getDomainClass());
+        Root<T> root = update.from(getDomainClass());
+        assign(update, root, builder, assignments);
+
+        List<Predicate> where = new ArrayList<>();
+        where.add(builder.equal(root.get("active"), active));
+        where.add(builder.between(root.get("id"), fromId, toId));
+        if (activeParent != null) {
+            // UPDATE không join được nên điều kiện "cha đang ACTIVE" viết bằng subquery: parent_id IN (SELECT id ...)
+            Path<Object> parentId = root.get(activeParent).get("id");
+            @SuppressWarnings("unchecked")
+            Subquery<Object> parents = update.subquery((Class<Object>) parentId.getJavaType());
+            Root<?> parent = parents.from(root.get(activeParent).getJavaType());
+            parents.select(parent.get("id")).where(builder.equal(parent.get("active"), Constants.EntityStatus.ACTIVE));
+            where.add(parentId.in(parents));
+        }
+        update.where(where.toArray(new Predicate[0]));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int bulkUpdateByParent(Collection<Integer> fromActive, Map<String, Object> assignments, String parentPath,
+                                  Collection<Integer> parentActive, Collection<Long> parentIds) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = builder.createCriteriaUpdate(getDomainClass());
+        Root<T> root = update.from(getDomainClass());
+        assign(update, root, builder, assignments);
+
+        // parentPath = "building" hoặc "building.project": cha trực tiếp, phần còn lại là đường dẫn tới bản ghi có id trong parentIds
+        String[] path = parentPath.split("\\.", 2);
+        Path<Object> parentId = root.get(path[0]).get("id");
+        Predicate parentMatches;
+        if (path.length == 1 && parentActive == null) {
+            parentMatches = parentId.in(parentIds);
+        } else {
+            // UPDATE không join được nên điều kiện trên bản ghi cha viết bằng subquery: parent_id IN (SELECT id ...)
+            Subquery<Object> parents = update.subquery((Class<Object>) parentId.getJavaType());
+            Root<?> parent = parents.from(root.get(path[0]).getJavaType());
+            Path<?> keyed = parent;
+            if (path.length > 1) {
+                for (String attribute : path[1].split("\\.")) {
+                    keyed = keyed.get(attribute);
+                }
+            }
+            List<Predicate> where = new ArrayList<>();
+            where.add(keyed.get("id").in(parentIds));
+            if (parentActive != null) {
+                where.add(parent.get("active").in(parentActive));
+            }
+            parents.select(parent.get("id")).where(where.toArray(new Predicate[0]));
+            parentMatches = parentId.in(parents);
+        }
+        update.where(root.get("active").in(fromActive), parentMatches);
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public List<Long> findIdsByActive(Integer active) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<T> root = query.from(getDomainClass());
+        query.select(root.get("id")).where(builder.equal(root.get("active"), active)).orderBy(builder.asc(root.get("id")));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public List<Long> findIdsByParentAndCodePrefix(String parentPath, Long parentId, String codePrefix) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<T> root = query.from(getDomainClass());
+        Path<?> parent = root;
+        for (String attribute : parentPath.split("\\.")) {
+            parent = parent.get(attribute);
+        }
+        query.select(root.get("id"))
+                .where(builder.equal(parent.get("id"), parentId), hasCodePrefix(builder, root.get("code"), codePrefix))
+                .orderBy(builder.asc(root.get("id")));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public int replaceCodePrefix(Collection<Long> ids, String oldPrefix, String newPrefix) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = builder.createCriteriaUpdate(getDomainClass());
+        Root<T> root = update.from(getDomainClass());
+        Path<String> code = root.get("code");
+        // code = newPrefix || SUBSTRING(code, len(oldPrefix) + 1)
+        update.set(code, builder.concat(builder.literal(newPrefix), builder.substring(code, oldPrefix.length() + 1)));
+        update.where(root.get("id").in(ids), hasCodePrefix(builder, code, oldPrefix));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    // LIKE 'prefix%' trên cột gốc để MySQL dùng range scan trên index của code, nhưng collation *_ci coi
+    // "B1" = "b1" và "Hà" = "Ha" nên lọc lại bằng BINARY(SUBSTRING(code, 1, n)) để khớp đúng từng byte
+    // (giống cách GenericRsqlSpecification lọc giá trị có dấu)
+    private static Predicate hasCodePrefix(CriteriaBuilder builder, Path<String> code, String prefix) {
+        return builder.and(
+                builder.like(code, toLikePrefix(prefix), LIKE_ESCAPE),
+                builder.equal(builder.function("BINARY", byte[].class, builder.substring(code, 1, prefix.length())),
+                        prefix.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // escape % _ trong giá trị để LIKE 'value%' chỉ khớp đúng tiền tố
+    private static String toLikePrefix(String value) {
+        return value
+                .replace(String.valueOf(LIKE_ESCAPE), LIKE_ESCAPE + String.valueOf(LIKE_ESCAPE))
+                .replace("%", LIKE_ESCAPE + "%")
+                .replace("_", LIKE_ESCAPE + "_") + "%";
+    }
+
+    @Override
+    public long forEach(Specification<T> spec, Sort sort, int fetchSize, Consumer<T> action) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = builder.createQuery(getDomainClass());
+        Root<T> root = query.from(getDomainClass());
+        // MySQL không cho chạy query khác trên connection khi result set streaming chưa đọc xong,
+        // nên bản ghi cha dùng khi serialize (buildingName, projectCode...) phải được lấy sẵn bằng fetch join
+        for (SingularAttribute<? super T, ?> attribute : root.getModel().getSingularAttributes()) {
+            if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.MANY_TO_ONE) {
+                root.fetch(attribute.getName(), JoinType.LEFT);
+            }
+        }
+        Predicate predicate = spec.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, builder));
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        // detach từng bản ghi không gỡ được bản ghi cha đã fetch join, nên xóa cả persistence context sau mỗi lô.
+        // fetchSize âm (chế độ streaming của MySQL) thì dùng lô mặc định
+        int clearInterval = fetchSize > 0 ? fetchSize : DEFAULT_CLEAR_INTERVAL;
+        long rows = 0;
+        try (Stream<T> stream = typedQuery.getResultStream()) {
+            Iterator<T> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                if (++rows % clearInterval == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        entityManager.clear();
+        return rows;
+    }
+
+    // SET <thuộc tính> = <giá trị> cho câu UPDATE, giá trị null ghi thành NULL
+    private void assign(CriteriaUpdate<T> update, Root<T> root, CriteriaBuilder builder, Map<String, Object> assignments) {
+        assignments.forEach((attribute, value) -> {
+            Path<Object> path = root.get(attribute);
+            if (value == null) {
+                update.<Object>set(path, builder.nullLiteral(path.getJavaType()));
+            } else {
+                update.<Object, Object>set(path, value);
+            }
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package com.stc.project.core;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Số liệu second-level cache của Hibernate theo từng region (entity và collection).
+ * Cần bật hibernate.generate_statistics, nếu không mọi bộ đếm đều bằng 0.
+ * Update/delete hàng loạt bằng JPQL/Criteria được Hibernate tự evict cả region của bảng bị sửa.
+ */
+@Component
+public class EntityCacheStats {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public EntityCacheStats(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public Map<String, Object> stats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        for (String region : new TreeSet<>(Arrays.asList(statistics.getSecondLevelCacheRegionNames()))) {
+            CacheRegionStatistics regionStats = statistics.getDomainDataRegionStatistics(region);
+            if (regionStats == null) {
+                continue;
+            }
+            long hits = regionStats.getHitCount();
+            long misses = regionStats.getMissCount();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("hitCount", hits);
+            row.put("missCount", misses);
+            row.put("putCount", regionStats.getPutCount());
+            row.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            result.put(region, row);
+        }
+        return result;
+    }
+}
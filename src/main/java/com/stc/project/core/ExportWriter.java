@@ -0,0 +1,124 @@
+package com.stc.project.core;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stc.project.exception.AppException;
+import com.stc.project.exception.ErrorCode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Ghi từng bản ghi ra response ngay khi đọc được: NDJSON (mỗi dòng 1 object JSON, giống JSON của API) hoặc CSV
+// (tiêu đề lấy theo các thuộc tính JSON của bản ghi đầu tiên)
+public abstract class ExportWriter {
+
+    private static final TypeReference<Map<String, Object>> ROW_TYPE = new TypeReference<>() {
+    };
+
+    protected final ObjectMapper objectMapper;
+
+    protected final OutputStream out;
+
+    protected ExportWriter(ObjectMapper objectMapper, OutputStream out) {
+        this.objectMapper = objectMapper;
+        this.out = out;
+    }
+
+    public static ExportWriter open(String format, ObjectMapper objectMapper, OutputStream out) {
+        return "csv".equals(checkFormat(format)) ? new Csv(objectMapper, out) : new Ndjson(objectMapper, out);
+    }
+
+    // ndjson hoặc csv
+    public static String checkFormat(String format) {
+        String normalized = format == null ? "" : format.trim().toLowerCase();
+        if (!normalized.equals("ndjson") && !normalized.equals("csv")) {
+            throw new AppException(ErrorCode.INVALID_EXPORT_FORMAT);
+        }
+        return normalized;
+    }
+
+    public static String contentType(String format) {
+        return "csv".equals(format) ? "text/csv;charset=UTF-8" : "application/x-ndjson";
+    }
+
+    public void write(Object row) {
+        try {
+            writeRow(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected abstract void writeRow(Object row) throws IOException;
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private static class Ndjson extends ExportWriter {
+
+        Ndjson(ObjectMapper objectMapper, OutputStream out) {
+            super(objectMapper, out);
+        }
+
+        @Override
+        protected void writeRow(Object row) throws IOException {
+            out.write(objectMapper.writeValueAsBytes(row));
+            out.write('\n');
+        }
+    }
+
+    private static class Csv extends ExportWriter {
+
+        private List<String> header;
+
+        Csv(ObjectMapper objectMapper, OutputStream out) {
+            super(objectMapper, out);
+        }
+
+        @Override
+        protected void writeRow(Object row) throws IOException {
+            Map<String, Object> values = objectMapper.convertValue(row, ROW_TYPE);
+            if (header == null) {
+                header = new ArrayList<>(values.keySet());
+                writeLine(new ArrayList<>(header));
+            }
+            List<Object> line = new ArrayList<>(header.size());
+            for (String column : header) {
+                line.add(values.get(column));
+            }
+            writeLine(line);
+        }
+
+        private void writeLine(List<?> values) throws IOException {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                line.append(escape(values.get(i)));
+            }
+            line.append('\n');
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        // ô chứa dấu phẩy, ngoặc kép hoặc xuống dòng được đặt trong ngoặc kép ("" là 1 dấu ngoặc kép)
+        private String escape(Object value) throws JsonProcessingException {
+            if (value == null) {
+                return "";
+            }
+            String text = value instanceof Map || value instanceof List
+                    ? objectMapper.writeValueAsString(value) : value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                return text;
+            }
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+    }
+}
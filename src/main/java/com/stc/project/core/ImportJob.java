@@ -0,0 +1,97 @@
+package com.stc.project.core;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Trạng thái 1 lần import chạy nền, client hỏi tiến độ bằng id.
+// Chỉ giữ tối đa maxErrors lỗi đầu tiên để job lớn không chiếm nhiều bộ nhớ
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ImportJob {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    final String id;
+    final String entity;
+    final LocalDateTime startedAt = LocalDateTime.now();
+    volatile LocalDateTime finishedAt;
+    volatile Status status = Status.RUNNING;
+    volatile String message;
+
+    @Getter(AccessLevel.NONE)
+    final AtomicLong rows = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    final AtomicLong imported = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    final AtomicLong failed = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    final List<RowError> errors = new ArrayList<>();
+    @JsonIgnore
+    final int maxErrors;
+
+    public ImportJob(String id, String entity, int maxErrors) {
+        this.id = id;
+        this.entity = entity;
+        this.maxErrors = maxErrors;
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getImported() {
+        return imported.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getRowsPerSecond() {
+        long millis = Duration.between(startedAt, finishedAt != null ? finishedAt : LocalDateTime.now()).toMillis();
+        return millis == 0 ? getRows() : getRows() * 1000 / millis;
+    }
+
+    public synchronized List<RowError> getErrors() {
+        return new ArrayList<>(errors);
+    }
+
+    public void rowRead() {
+        rows.incrementAndGet();
+    }
+
+    public void imported(int count) {
+        imported.addAndGet(count);
+    }
+
+    public synchronized void failed(long line, String message) {
+        failed.incrementAndGet();
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    public void finish(Status status, String message) {
+        this.message = message;
+        this.finishedAt = LocalDateTime.now();
+        this.status = status;
+    }
+
+    // line: số dòng trong file (dòng tiêu đề CSV là dòng 1)
+    @Getter
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static class RowError {
+        long line;
+        String message;
+    }
+}
@@ -0,0 +1,192 @@
+package com.stc.project.core;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stc.project.exception.AppException;
+import com.stc.project.exception.ErrorCode;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Đọc file import từng dòng một, không nạp cả file vào bộ nhớ: NDJSON (mỗi dòng 1 object JSON) hoặc CSV có dòng tiêu đề.
+// Mỗi dòng trả về dạng {tên cột: giá trị}, ô CSV rỗng được bỏ qua
+public abstract class ImportRowReader implements Closeable {
+
+    protected final BufferedReader reader;
+
+    // số dòng (trong file) đã đọc tới
+    protected long line;
+
+    protected ImportRowReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    public static ImportRowReader open(InputStream in, String format) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        switch (checkFormat(format)) {
+            case "csv":
+                return new Csv(reader);
+            default:
+                return new Ndjson(reader);
+        }
+    }
+
+    // ndjson hoặc csv
+    public static String checkFormat(String format) {
+        String normalized = format == null ? "" : format.trim().toLowerCase();
+        if (!normalized.equals("ndjson") && !normalized.equals("csv")) {
+            throw new AppException(ErrorCode.INVALID_IMPORT_FORMAT);
+        }
+        return normalized;
+    }
+
+    // Dòng tiếp theo, null khi hết file. Dòng sai định dạng ném IllegalArgumentException,
+    // dòng đó đã được bỏ qua nên gọi tiếp next() vẫn đọc được các dòng sau
+    public abstract Map<String, Object> next() throws IOException;
+
+    public long getLine() {
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static class Ndjson extends ImportRowReader {
+
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+
+        Ndjson(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        public Map<String, Object> next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                if (text == null) {
+                    return null;
+                }
+                line++;
+            } while (text.isBlank());
+
+            JsonNode node;
+            try {
+                node = MAPPER.readTree(text);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("Each line must be a JSON object.");
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            node.fields().forEachRemaining(field -> {
+                if (!field.getValue().isNull()) {
+                    row.put(field.getKey(), field.getValue().isValueNode() ? field.getValue().asText() : field.getValue());
+                }
+            });
+            return row;
+        }
+    }
+
+    private static class Csv extends ImportRowReader {
+
+        private List<String> header;
+
+        Csv(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        public Map<String, Object> next() throws IOException {
+            if (header == null) {
+                header = readRecord();
+                if (header == null) {
+                    return null;
+                }
+                // bỏ BOM của file CSV lưu từ Excel
+                if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+                    header.set(0, header.get(0).substring(1));
+                }
+                header.replaceAll(String::trim);
+            }
+            List<String> fields;
+            do {
+                fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+
+            if (fields.size() != header.size()) {
+                throw new IllegalArgumentException("Expected " + header.size() + " columns but found " + fields.size() + ".");
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                if (!fields.get(i).isEmpty()) {
+                    row.put(header.get(i), fields.get(i));
+                }
+            }
+            return row;
+        }
+
+        // 1 bản ghi CSV: ô có thể nằm trong ngoặc kép ("" là 1 dấu ngoặc kép) và chứa dấu phẩy / xuống dòng
+        private List<String> readRecord() throws IOException {
+            String text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == text.length()) {
+                    if (!quoted) {
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                    // xuống dòng nằm trong ô có ngoặc kép
+                    text = reader.readLine();
+                    if (text == null) {
+                        throw new IllegalArgumentException("Unterminated quoted field.");
+                    }
+                    line++;
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+                char c = text.charAt(i++);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < text.length() && text.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.stc.project.core;
+
+import com.stc.project.exception.AppException;
+import com.stc.project.exception.ErrorCode;
+import com.stc.project.rsql.RsqlSelector;
+import com.stc.project.rsql.RsqlSelectorRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mã hóa / giải mã cursor của phân trang keyset.
+ * Cursor = base64url(chiều + các cặp key=value của dòng mốc) + "." + chữ ký HMAC-SHA256.
+ * Chữ ký gắn với entity + scope (query, user) nên client không sửa được giá trị mốc
+ * và không dùng cursor của filter này cho filter khác / user khác.
+ */
+@Component
+public class KeysetCursorCodec {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String FORWARD = "F";
+    private static final String BACKWARD = "B";
+
+    private final RsqlSelectorRegistry selectorRegistry;
+
+    private final SecretKeySpec key;
+
+    public KeysetCursorCodec(RsqlSelectorRegistry selectorRegistry,
+                             @Value("${pagination.cursor.secret:${jwt.signed_key}}") String secret) {
+        this.selectorRegistry = selectorRegistry;
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    public String encode(Class<?> entityType, String scope, KeysetScrollPosition position) {
+        StringBuilder payload = new StringBuilder(position.scrollsBackward() ? BACKWARD : FORWARD);
+        position.getKeys().forEach((property, value) -> {
+            payload.append('&').append(URLEncoder.encode(property, StandardCharsets.UTF_8));
+            // giá trị null: chỉ ghi key, không có dấu '='
+            if (value != null) {
+                payload.append('=').append(URLEncoder.encode(value.toString(), StandardCharsets.UTF_8));
+            }
+        });
+        String body = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.toString().getBytes(StandardCharsets.UTF_8));
+        return body + "." + sign(entityType, scope, body);
+    }
+
+    // cursor rỗng = trang đầu tiên. Key trong cursor phải đúng bằng các cột sort + id
+    public KeysetScrollPosition decode(Class<?> entityType, String scope, String cursor, Sort sort) {
+        if (!StringUtils.hasText(cursor)) {
+            return ScrollPosition.keyset();
+        }
+        int dot = cursor.lastIndexOf('.');
+        if (dot <= 0) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+        String body = cursor.substring(0, dot);
+        byte[] signature = cursor.substring(dot + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(signature, sign(entityType, scope, body).getBytes(StandardCharsets.US_ASCII))) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+
+        String payload;
+        try {
+            payload = new String(Base64.getUrlDecoder().decode(body), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+        String[] parts = payload.split("&");
+        Map<String, RsqlSelector> selectors = selectorRegistry.selectorsOf(entityType);
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (int i = 1; i < parts.length; i++) {
+            int eq = parts[i].indexOf('=');
+            String property = URLDecoder.decode(eq < 0 ? parts[i] : parts[i].substring(0, eq), StandardCharsets.UTF_8);
+            RsqlSelector selector = selectors.get(property);
+            if (selector == null) {
+                throw new AppException(ErrorCode.INVALID_CURSOR);
+            }
+            keys.put(property, eq < 0 ? null
+                    : selector.convert(URLDecoder.decode(parts[i].substring(eq + 1), StandardCharsets.UTF_8)));
+        }
+
+        Set<String> expected = new HashSet<>();
+        sort.forEach(order -> expected.add(order.getProperty()));
+        expected.add("id");
+        if (!expected.equals(keys.keySet())) {
+            // sort đã đổi so với lúc tạo cursor
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+
+        switch (parts[0]) {
+            case FORWARD:
+                return ScrollPosition.forward(keys);
+            case BACKWARD:
+                return ScrollPosition.backward(keys);
+            default:
+                throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    private String sign(Class<?> entityType, String scope, String body) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            byte[] digest = mac.doFinal((entityType.getName() + "\n" + scope + "\n" + body).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign pagination cursor", e);
+        }
+    }
+}
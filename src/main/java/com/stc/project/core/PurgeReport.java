@@ -0,0 +1,25 @@
+package com.stc.project.core;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+// Kết quả 1 lần dọn thùng rác: số bản ghi đã xóa vĩnh viễn, số bản ghi con xóa kèm, số lô và thời gian chạy
+@Getter
+@ToString
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PurgeReport {
+    String entity;
+    long rows;
+    long childRows;
+    int batches;
+    long elapsedMillis;
+
+    // số bản ghi (kể cả bản ghi con) xóa được mỗi giây
+    public long getRowsPerSecond() {
+        return elapsedMillis == 0 ? rows + childRows : (rows + childRows) * 1000 / elapsedMillis;
+    }
+}
@@ -0,0 +1,110 @@
+package com.stc.project.core;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache tổng số bản ghi cho chế độ count=estimate, khóa theo (entity, query đã chuẩn hóa + phạm vi user).
+ * Entry hết hạn sau TTL, và hết hiệu lực cho 1 entity ngay khi có bản ghi của entity đó được insert/update/delete
+ * (nghe event post-commit của Hibernate nên bắt được cả các thay đổi dây chuyền từ service khác).
+ * Khóa có thêm "thế hệ" của entity: invalidate chỉ tăng thế hệ (O(1), không duyệt cache) nên transaction
+ * sửa hàng nghìn dòng cũng không tốn gì, các entry thế hệ cũ không còn được đọc và tự hết hạn theo TTL/kích thước.
+ * Update hàng loạt bằng JPQL không đi qua event -> phải gọi invalidate(...) thủ công.
+ */
+@Component
+public class SearchCountCache implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final Cache<CountKey, Long> cache;
+
+    private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public SearchCountCache(EntityManagerFactory entityManagerFactory,
+                            @Value("${search.count-cache.ttl-seconds:60}") long ttlSeconds,
+                            @Value("${search.count-cache.max-size:1000}") long maxSize) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    @PostConstruct
+    void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    public long get(Class<?> entityType, String fingerprint, Supplier<Long> counter) {
+        return cache.get(new CountKey(entityType, generation(entityType).get(), fingerprint), key -> counter.get());
+    }
+
+    public void invalidate(Class<?> entityType) {
+        generation(entityType).incrementAndGet();
+    }
+
+    private AtomicLong generation(Class<?> entityType) {
+        return generations.computeIfAbsent(entityType, type -> new AtomicLong());
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        invalidate(event.getPersister().getMappedClass());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        invalidate(event.getPersister().getMappedClass());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        invalidate(event.getPersister().getMappedClass());
+    }
+
+    // transaction rollback thì dữ liệu không đổi, giữ nguyên cache
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return true;
+    }
+
+    private record CountKey(Class<?> entityType, long generation, String fingerprint) {
+    }
+}
@@ -32,7 +32,19 @@ public enum ErrorCode {
     INVALID_OTP("OTP không hợp lệ", HttpStatus.BAD_REQUEST),
     OTP_EXPIRED("OTP đã hết hạn", HttpStatus.BAD_REQUEST),
     OTP_ALREADY_USED("OTP đã được sử dụng", HttpStatus.BAD_REQUEST),
-    NEED_TO_VERIFY("Need to verify", HttpStatus.UNAUTHORIZED);
+    NEED_TO_VERIFY("Need to verify", HttpStatus.UNAUTHORIZED),
+    INVALID_SEARCH_QUERY("Invalid search query", HttpStatus.BAD_REQUEST),
+    UNKNOWN_SEARCH_FIELD("Unknown search field", HttpStatus.BAD_REQUEST),
+    INVALID_CURSOR("Invalid pagination cursor", HttpStatus.BAD_REQUEST),
+    INVALID_COUNT_MODE("Count mode must be exact, estimate or none", HttpStatus.BAD_REQUEST),
+    SEARCH_QUERY_TOO_COMPLEX("Search query is too complex", HttpStatus.BAD_REQUEST),
+    SEARCH_PAGE_SIZE_TOO_LARGE("Page size is too large", HttpStatus.BAD_REQUEST),
+    INVALID_AGGREGATE_METRIC("Invalid aggregate metric", HttpStatus.BAD_REQUEST),
+    TOO_MANY_AGGREGATE_GROUPS("Aggregate returns too many groups", HttpStatus.BAD_REQUEST),
+    BATCH_TOO_LARGE("Too many items in batch", HttpStatus.BAD_REQUEST),
+    INVALID_IMPORT_FORMAT("Import format must be ndjson or csv", HttpStatus.BAD_REQUEST),
+    IMPORT_JOB_NOT_FOUND("Import job not found", HttpStatus.NOT_FOUND),
+    INVALID_EXPORT_FORMAT("Export format must be ndjson or csv", HttpStatus.BAD_REQUEST);
     String errorMessage;
     HttpStatus status;
 
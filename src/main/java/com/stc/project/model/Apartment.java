@@ -10,7 +10,14 @@ import lombok.experimental.FieldDefaults;
 
 
 @Entity
-@Table(name = "apartment")
+@Table(name = "apartment", indexes = {
+        @Index(name = "idx_apartment_code", columnList = "code"),
+        @Index(name = "idx_apartment_name", columnList = "name"),
+        @Index(name = "idx_apartment_created_by", columnList = "created_by, active, id"),
+        @Index(name = "idx_apartment_trash", columnList = "active, deleted_at"),
+        @Index(name = "idx_apartment_price", columnList = "price"),
+        @Index(name = "idx_apartment_total_area", columnList = "total_area")
+})
 @Getter
 @Setter
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -7,11 +7,21 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
 @Entity
-@Table(name = "building")
+@Table(name = "building", indexes = {
+        @Index(name = "idx_building_code", columnList = "code"),
+        @Index(name = "idx_building_name", columnList = "name"),
+        @Index(name = "idx_building_created_by", columnList = "created_by, active, id"),
+        @Index(name = "idx_building_trash", columnList = "active, deleted_at")
+})
+// được nạp lại mỗi lần thêm/sửa/khôi phục căn hộ -> giữ trong second-level cache
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "building")
 @Getter
 @Setter
 @FieldDefaults(level = AccessLevel.PRIVATE)
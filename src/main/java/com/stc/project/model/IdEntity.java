@@ -9,7 +9,9 @@ import jakarta.persistence.*;
 @Setter
 @MappedSuperclass
 public class IdEntity extends AbstractEntity {
+    // SEQUENCE (pooled, mỗi lần lấy 50 id) thay cho IDENTITY để Hibernate gom được INSERT theo lô.
+    // MySQL không có sequence nên Hibernate dùng bảng <tên bảng>_seq giả lập, tạo bằng db/pooled-id-sequences.sql
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 }
@@ -7,12 +7,23 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(name = "project")
+@Table(name = "project", indexes = {
+        @Index(name = "idx_project_code", columnList = "code"),
+        @Index(name = "idx_project_name", columnList = "name"),
+        @Index(name = "idx_project_created_by", columnList = "created_by, active, id"),
+        @Index(name = "idx_project_trash", columnList = "active, deleted_at"),
+        @Index(name = "idx_project_expected_completion_date", columnList = "expected_completion_date")
+})
+// dự án rất ít khi sửa nhưng được đọc liên tục -> giữ trong second-level cache (region cấu hình ở hibernate-cache.conf)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "project")
 @Getter
 @Setter
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -3,6 +3,8 @@ package com.stc.project.repository;
 
 import com.stc.project.core.CustomJpaRepository;
 import com.stc.project.model.Apartment;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
@@ -10,4 +12,14 @@ public interface ApartmentRepository extends CustomJpaRepository<Apartment, Long
 
     List<Apartment> findByBuilding_Id(Long buildingId);
 
+    // xóa vĩnh viễn căn hộ của các tòa nhà sắp bị xóa vĩnh viễn
+    @Modifying
+    @Query("DELETE FROM Apartment a WHERE a.building.id IN :buildingIds")
+    int deleteByBuildingIds(List<Long> buildingIds);
+
+    // xóa vĩnh viễn căn hộ thuộc các dự án sắp bị xóa vĩnh viễn
+    @Modifying
+    @Query("DELETE FROM Apartment a WHERE a.building.id IN (SELECT b.id FROM Building b WHERE b.project.id IN :projectIds)")
+    int deleteByProjectIds(List<Long> projectIds);
+
 }
@@ -3,6 +3,7 @@ package com.stc.project.repository;
 
 import com.stc.project.core.CustomJpaRepository;
 import com.stc.project.model.Building;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
@@ -13,6 +14,11 @@ public interface BuildingRepository extends CustomJpaRepository<Building,Long> {
 
     @Query(value = "SELECT COUNT(*) FROM building WHERE building.active = 1", nativeQuery = true)
     Long countActiveBuildings();
+
+    // xóa vĩnh viễn tòa nhà của các dự án sắp bị xóa vĩnh viễn
+    @Modifying
+    @Query("DELETE FROM Building b WHERE b.project.id IN :projectIds")
+    int deleteByProjectIds(List<Long> projectIds);
 }
 
 
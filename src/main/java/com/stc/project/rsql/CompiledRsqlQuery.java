@@ -0,0 +1,30 @@
+package com.stc.project.rsql;
+
+import cz.jirutka.rsql.parser.ast.Node;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Kết quả biên dịch 1 câu query RSQL cho 1 entity: giữ AST đã parse, Specification dựng từ AST đó và chi phí ước lượng.
+ * Object này được cache và dùng chung giữa các request nên không được chứa state theo từng lần gọi.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CompiledRsqlQuery<T> {
+
+    Class<T> entityType;
+
+    // query đã chuẩn hóa (bỏ khoảng trắng ngoài dấu nháy) - cũng là khóa cache
+    String query;
+
+    Node ast;
+
+    Specification<T> specification;
+
+    // chi phí ước lượng, tính 1 lần lúc biên dịch
+    RsqlQueryCost cost;
+}
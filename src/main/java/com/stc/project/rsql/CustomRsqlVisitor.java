@@ -10,22 +10,22 @@ public class CustomRsqlVisitor<T> implements RSQLVisitor<Specification<T>, Void>
 
     private GenericRsqlSpecBuilder<T> builder;
 
-    public CustomRsqlVisitor() {
-        builder = new GenericRsqlSpecBuilder<T>();
+    public CustomRsqlVisitor(Class<T> entityType, RsqlSelectorRegistry selectorRegistry) {
+        builder = new GenericRsqlSpecBuilder<T>(entityType, selectorRegistry);
     }
 
     @Override
     public Specification<T> visit(AndNode node, Void param) {
-        return builder.createSpecification(node);
+        return builder.build(node);
     }
 
     @Override
     public Specification<T> visit(OrNode node, Void param) {
-        return builder.createSpecification(node);
+        return builder.build(node);
     }
 
     @Override
     public Specification<T> visit(ComparisonNode node, Void params) {
-        return builder.createSpecification(node);
+        return builder.build(node);
     }
 }
@@ -4,10 +4,16 @@ import cz.jirutka.rsql.parser.ast.ComparisonNode;
 import cz.jirutka.rsql.parser.ast.LogicalNode;
 import cz.jirutka.rsql.parser.ast.LogicalOperator;
 import cz.jirutka.rsql.parser.ast.Node;
+import cz.jirutka.rsql.parser.ast.RSQLOperators;
+import jakarta.persistence.criteria.JoinType;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Created by huyvv
@@ -17,6 +23,63 @@ import java.util.List;
  **/
 public class GenericRsqlSpecBuilder<T> {
 
+    private final Class<T> entityType;
+
+    private final RsqlSelectorRegistry selectorRegistry;
+
+    // kiểu join cho từng association path của cả query ("building", "building.project"),
+    // mỗi path chỉ có 1 kiểu join nên mọi node so sánh dùng chung được 1 join
+    private final Map<String, JoinType> joinPlan = new HashMap<>();
+
+    public GenericRsqlSpecBuilder(Class<T> entityType, RsqlSelectorRegistry selectorRegistry) {
+        this.entityType = entityType;
+        this.selectorRegistry = selectorRegistry;
+    }
+
+    // Điểm vào cho node gốc: lập kế hoạch join cho toàn bộ cây rồi mới dựng Specification
+    public Specification<T> build(Node root) {
+        planJoins(root, false);
+        return createSpecification(root);
+    }
+
+    // INNER JOIN khi điều kiện chỉ đúng với dòng có bản ghi cha (==value, =in=, so sánh lớn/nhỏ trong nhánh AND).
+    // LEFT JOIN khi dòng không có bản ghi cha vẫn có thể thỏa điều kiện: ==null, !=, =out=, hoặc nằm trong nhánh OR.
+    // 1 path chỉ cần LEFT ở 1 chỗ là cả query dùng LEFT cho path đó.
+    private void planJoins(Node node, boolean underOr) {
+        if (node instanceof LogicalNode) {
+            boolean or = underOr || ((LogicalNode) node).getOperator() == LogicalOperator.OR;
+            for (Node child : ((LogicalNode) node).getChildren()) {
+                planJoins(child, or);
+            }
+            return;
+        }
+        ComparisonNode comparison = (ComparisonNode) node;
+        RsqlSelector selector = selectorRegistry.resolve(entityType, comparison.getSelector());
+        JoinType joinType = underOr || needsOuterJoin(comparison) ? JoinType.LEFT : JoinType.INNER;
+        String path = "";
+        for (String join : selector.getJoins()) {
+            path = path.isEmpty() ? join : path + "." + join;
+            joinPlan.merge(path, joinType, (a, b) -> a == JoinType.LEFT || b == JoinType.LEFT ? JoinType.LEFT : JoinType.INNER);
+        }
+    }
+
+    private static boolean needsOuterJoin(ComparisonNode comparison) {
+        RsqlSearchOperation operation = RsqlSearchOperation.getSimpleOperator(comparison.getOperator());
+        return operation == RsqlSearchOperation.NOT_EQUAL
+                || operation == RsqlSearchOperation.NOT_IN
+                || comparison.getArguments().contains("null");
+    }
+
+    private List<JoinType> joinTypesOf(RsqlSelector selector) {
+        List<JoinType> joinTypes = new ArrayList<>();
+        String path = "";
+        for (String join : selector.getJoins()) {
+            path = path.isEmpty() ? join : path + "." + join;
+            joinTypes.add(joinPlan.getOrDefault(path, JoinType.INNER));
+        }
+        return joinTypes;
+    }
+
     public Specification<T> createSpecification(Node node) {
         if (node instanceof LogicalNode) {
             return createSpecification((LogicalNode) node);
@@ -28,9 +91,12 @@ public class GenericRsqlSpecBuilder<T> {
     }
 
     public Specification<T> createSpecification(LogicalNode logicalNode) {
+        List<Node> children = logicalNode.getOperator() == LogicalOperator.OR
+                ? mergeEqualsIntoIn(logicalNode.getChildren())
+                : logicalNode.getChildren();
         List<Specification<T>> specs = new ArrayList<>();
 
-        for (Node child : logicalNode.getChildren()) {
+        for (Node child : children) {
             Specification<T> spec = createSpecification(child);
             if (spec != null) {
                 specs.add(spec);
@@ -38,24 +104,62 @@ public class GenericRsqlSpecBuilder<T> {
         }
 
         if (specs.isEmpty()) return null;
+        if (specs.size() == 1) return specs.get(0);
 
-        Specification<T> result = specs.get(0);
-        for (int i = 1; i < specs.size(); i++) {
-            if (logicalNode.getOperator() == LogicalOperator.AND) {
-                result = result.and(specs.get(i));
-            } else if (logicalNode.getOperator() == LogicalOperator.OR) {
-                result = result.or(specs.get(i));
+        return new RsqlLogicalSpecification<>(logicalNode.getOperator(), specs);
+    }
+
+    // Trong nhánh OR: code==A,code==B,code=in=(C,D) -> code=in=(A,B,C,D), giữ vị trí của node đầu tiên.
+    // Chỉ gộp tham số so sánh bằng được bằng IN: không có '*', không phải null, chỉ gồm ký tự ASCII
+    // (giá trị có dấu cần lọc BINARY nên giữ nguyên)
+    private List<Node> mergeEqualsIntoIn(List<Node> children) {
+        Map<String, List<String>> argumentsBySelector = new LinkedHashMap<>();
+        Map<String, Integer> countBySelector = new HashMap<>();
+        for (Node child : children) {
+            if (isMergeable(child)) {
+                ComparisonNode comparison = (ComparisonNode) child;
+                argumentsBySelector.computeIfAbsent(comparison.getSelector(), k -> new ArrayList<>())
+                        .addAll(comparison.getArguments());
+                countBySelector.merge(comparison.getSelector(), 1, Integer::sum);
             }
         }
+        if (countBySelector.values().stream().allMatch(count -> count == 1)) {
+            return children;
+        }
 
+        List<Node> result = new ArrayList<>(children.size());
+        for (Node child : children) {
+            if (!isMergeable(child) || countBySelector.get(((ComparisonNode) child).getSelector()) == 1) {
+                result.add(child);
+                continue;
+            }
+            // node đầu tiên của selector mang toàn bộ tham số, các node sau bỏ đi
+            List<String> arguments = argumentsBySelector.remove(((ComparisonNode) child).getSelector());
+            if (arguments != null) {
+                result.add(new ComparisonNode(RSQLOperators.IN, ((ComparisonNode) child).getSelector(),
+                        arguments.stream().distinct().collect(Collectors.toList())));
+            }
+        }
         return result;
     }
 
+    private static boolean isMergeable(Node node) {
+        if (!(node instanceof ComparisonNode)) {
+            return false;
+        }
+        ComparisonNode comparison = (ComparisonNode) node;
+        RsqlSearchOperation operation = RsqlSearchOperation.getSimpleOperator(comparison.getOperator());
+        return (operation == RsqlSearchOperation.EQUAL || operation == RsqlSearchOperation.IN)
+                && comparison.getArguments().stream().allMatch(GenericRsqlSpecification::matchesExactlyByIn);
+    }
+
+    // Tra selector trong bảng dựng sẵn và chuyển tham số về đúng kiểu ngay lúc biên dịch,
+    // selector lạ hoặc tham số sai kiểu bị từ chối ở đây, trước khi dựng SQL
     public Specification<T> createSpecification(ComparisonNode comparisonNode) {
-        return new GenericRsqlSpecification<>(
-                comparisonNode.getSelector(),
-                comparisonNode.getOperator(),
-                comparisonNode.getArguments()
-        );
+        RsqlSelector selector = selectorRegistry.resolve(entityType, comparisonNode.getSelector());
+        List<Object> arguments = comparisonNode.getArguments().stream()
+                .map(selector::convert)
+                .collect(Collectors.toList());
+        return new GenericRsqlSpecification<>(selector, joinTypesOf(selector), comparisonNode.getOperator(), arguments);
     }
 }
@@ -1,15 +1,17 @@
 package com.stc.project.rsql;
 
 import com.stc.project.constants.Constants;
+import com.stc.project.exception.AppException;
+import com.stc.project.exception.ErrorCode;
 import cz.jirutka.rsql.parser.ast.ComparisonOperator;
 import jakarta.persistence.criteria.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.jpa.domain.Specification;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -18,379 +20,162 @@ import java.util.regex.Pattern;
  * Date: 4/6/2025
  * Time: 2:37 PM
  * for all issues, contact me: huyvv@vnpt-technology.vn
+ *
+ * Specification cho 1 node so sánh (selector, operator, arguments).
+ * Selector đã được tra sẵn trong RsqlSelectorRegistry và tham số đã được chuyển đúng kiểu lúc biên dịch.
+ * Object là bất biến: join/path của từng lần gọi toPredicate chỉ nằm trên root của lần gọi đó,
+ * nên 1 instance dùng chung được giữa nhiều thread và gọi được nhiều lần
+ * (Spring Data gọi 1 lần cho query lấy dữ liệu, 1 lần cho query count).
  **/
 public class GenericRsqlSpecification<T> implements Specification<T> {
     private static final Logger log = LoggerFactory.getLogger(GenericRsqlSpecification.class);
-    private String property;
-    private ComparisonOperator operator;
-    private List<String> arguments;
-    List<String> entityList = null;
-    String lastProperty = null;
-    Path<T> pathWithChild = null;
-    Join<?,?> join =  null ;
+    private static final char LIKE_ESCAPE = '!';
+    // giá trị chỉ gồm ký tự ASCII thì collation của MySQL so sánh đúng, không cần lọc thêm BINARY
+    private static final Pattern ASCII_VALUE = Pattern.compile(Constants.CHARACTER_NOT_CONTAIN_SPECIAL_CHARACTER);
+    private final RsqlSelector selector;
+    private final List<JoinType> joinTypes;
+    private final ComparisonOperator operator;
+    private final List<Object> arguments;
+
     public GenericRsqlSpecification(
-            String property, ComparisonOperator operator, List<String> arguments) {
+            RsqlSelector selector, List<JoinType> joinTypes, ComparisonOperator operator, List<Object> arguments) {
         super();
-        this.property = property;
+        this.selector = selector;
+        this.joinTypes = List.copyOf(joinTypes);
         this.operator = operator;
-        this.arguments = arguments;
+        this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
+        if (isRange(operator) && !(arguments.get(0) instanceof Comparable)) {
+            // =gt=null, hoặc thuộc tính không so sánh lớn/nhỏ được
+            throw new AppException(ErrorCode.INVALID_SEARCH_QUERY);
+        }
     }
 
     @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public Predicate toPredicate(
             Root<T> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
-        if (property.contains(".")) {
-            return toPredicateWithChilds(root, query, builder);
-        }
-        List<Object> args = castArguments(root);
-        if (entityList != null && entityList.size() > 0) {
-            return toPredicateWithChilds(root, query, builder);
-        }
-        Object argument = args.get(0);
+        Path<Object> path = selector.toPath(root, joinTypes);
+        Object argument = arguments.get(0);
         switch (RsqlSearchOperation.getSimpleOperator(operator)) {
 
             case EQUAL: {
-                Path path = root.<String>get(property);
-                if ("expression".equals(property)) {
-                    String listArg[] = argument.toString().split(";");
-                    for (int i = 0; i < listArg.length; i++) {
-                        if (listArg[i].indexOf("groupBy") > -1) {
-                            if (!("").equals(listArg[i].split("==")[1])) {
-                                query.groupBy(root.<String>get(listArg[i].split("==")[1]));
-                            }
-                        }
-                        if (listArg[i].indexOf("orderBy") > -1) {
-                            String condition = listArg[i].split("==")[1];
-                            if (!("").equals(condition)) {
-                                String conditions[] = condition.split(",");
-                                if (conditions.length > 1 && ("desc").equals(conditions[1])) {
-                                    query.orderBy(builder.desc(root.<String>get(conditions[0])));
-                                }
-                            }
-                        }
-                    }
-                    break;
-                }
-
                 if (argument instanceof String) {
-                    if (("null").equals(argument)) {
-                        return builder.isNull(root.get(property));
-                    }
-                    if (path.getJavaType() == Boolean.class) {
-                        String tmp = (String) argument;
-                        String val = "1".equals(tmp) ? "true" : ("0".equals(tmp) ? "false" : tmp);
-                        return builder.equal(root.get(property), Boolean.valueOf(val));
-                    }
-
-                    if (path.getJavaType() == Integer.class || path.getJavaType() == int.class) {
-                        return builder.equal(root.get(property), Integer.valueOf(argument.toString()));
-                    }
-
-                    if (path.getJavaType() == Double.class) {
-                        return builder.equal(root.get(property), Double.valueOf(argument.toString()));
-                    }
-                    if (path.getJavaType() == BigDecimal.class) {
-                        // return builder.equal(root.get(property),BigDecimal.valueOf(Long.parseLong(argument.toString())));
-                        return builder.equal(root.get(property), BigDecimal.valueOf(Double.valueOf(argument.toString())));
-                    }
-
-                    // check wildcard character of sql
-                    // % _ [ ] ^ -
+                    String value = decodeSpace((String) argument);
+                    Expression<String> stringPath = stringPath(path);
 
-                    if (((String) argument).contains("%") ||
-                            ((String) argument).contains("_") ||
-                            ((String) argument).contains("[") ||
-                            ((String) argument).contains("]") ||
-                            ((String) argument).contains("^") ||
-                            ((String) argument).contains("-") ||
-                            ((String) argument).contains("*")) {
-                        String finalArgument = ((String) argument)
-                                .replace("%", "!%")
-                                .replace("_", "!_")
-                                .replace("[", "![")
-                                .replace("]", "!]")
-                                .replace("^", "!^")
-                                .replace("-", "!-");
-                        return builder.like(
-                                root.<String>get(property), finalArgument.replace("%20", " ").replace('*', '%'), '!');
+                    // '*' là wildcard của RSQL: 'abc*' -> LIKE 'abc%' vẫn là range scan trên index,
+                    // '*abc' thì MySQL phải quét toàn bảng (RsqlQueryGuard giới hạn số lần dùng theo role)
+                    if (value.indexOf('*') >= 0) {
+                        return builder.like(stringPath, toLikePattern(value), LIKE_ESCAPE);
                     }
 
-                    if (((String) argument).matches(Constants.CHARACTER_NOT_CONTAIN_SPECIAL_CHARACTER)) {
-                        return builder.like(
-                                root.get(property), argument.toString().replace("%20", " ").replace('*', '%'));
-                    } else {
-                        return builder.equal(
-                                builder.function("BINARY", Byte[].class,root.<String>get(property)),
-                                argument.toString().replace("%20", " ").replace('*', '%').getBytes());
+                    // không có wildcard: so sánh bằng trên cột gốc để MySQL dùng được index
+                    Predicate equal = builder.equal(stringPath, value);
+                    if (ASCII_VALUE.matcher(value).matches()) {
+                        return equal;
                     }
+                    // tiếng Việt có dấu: collation *_ci coi "Hà" = "Ha", lọc lại bằng BINARY để khớp chính xác.
+                    // col = ? vẫn tìm qua index, BINARY(col) chỉ lọc tiếp trên các dòng đã tìm được
+                    return builder.and(equal, builder.equal(
+                            builder.function("BINARY", byte[].class, stringPath),
+                            value.getBytes(StandardCharsets.UTF_8)));
                 } else if (argument == null) {
-                    return builder.isNull(root.get(property));
+                    return builder.isNull(path);
                 } else {
-                    return builder.equal(root.get(property), argument);
+                    return builder.equal(path, argument);
                 }
             }
             case NOT_EQUAL: {
                 if (argument instanceof String) {
-                    // check wildcard character of sql
-                    // % _ [ ] ^ -
-
-                    if (((String) argument).contains("%") ||
-                            ((String) argument).contains("_") ||
-                            ((String) argument).contains("[") ||
-                            ((String) argument).contains("]") ||
-                            ((String) argument).contains("^") ||
-                            ((String) argument).contains("-")) {
-                        String finalArgument = ((String) argument)
-                                .replace("%", "!%")
-                                .replace("_", "!_")
-                                .replace("[", "![")
-                                .replace("]", "!]")
-                                .replace("^", "!^")
-                                .replace("-", "!-");
-                        return builder.notLike(
-                                root.<String>get(property), finalArgument.replace("%20", " ").replace('*', '%'), '!');
+                    String value = decodeSpace((String) argument);
+                    Expression<String> stringPath = stringPath(path);
+                    if (value.indexOf('*') >= 0) {
+                        return builder.notLike(stringPath, toLikePattern(value), LIKE_ESCAPE);
                     }
-
-                    return builder.notLike(
-                            root.<String>get(property), argument.toString().replace("%20", " ").replace('*', '%'));
+                    if (ASCII_VALUE.matcher(value).matches()) {
+                        return builder.notEqual(stringPath, value);
+                    }
+                    return builder.notEqual(
+                            builder.function("BINARY", byte[].class, stringPath),
+                            value.getBytes(StandardCharsets.UTF_8));
                 } else if (argument == null) {
-                    return builder.isNotNull(root.get(property));
+                    return builder.isNotNull(path);
                 } else {
-                    return builder.notEqual(root.get(property), argument);
+                    return builder.notEqual(path, argument);
                 }
             }
+            // tham số đã được chuyển đúng kiểu của thuộc tính (số, ngày...) nên so sánh theo kiểu đó,
+            // MySQL dùng được range scan trên index thay vì so sánh chuỗi
             case GREATER_THAN: {
-                return builder.greaterThan(root.<String>get(property), argument.toString());
+                return builder.greaterThan(comparablePath(path), (Comparable) argument);
             }
             case GREATER_THAN_OR_EQUAL: {
-                return builder.greaterThanOrEqualTo(
-                        root.<String>get(property), argument.toString());
+                return builder.greaterThanOrEqualTo(comparablePath(path), (Comparable) argument);
             }
             case LESS_THAN: {
-                return builder.lessThan(root.<String>get(property), argument.toString());
+                return builder.lessThan(comparablePath(path), (Comparable) argument);
             }
             case LESS_THAN_OR_EQUAL: {
-                return builder.lessThanOrEqualTo(
-                        root.<String>get(property), argument.toString());
+                return builder.lessThanOrEqualTo(comparablePath(path), (Comparable) argument);
             }
             case IN:
-                return root.get(property).in(args);
+                return path.in(inArguments());
             case NOT_IN:
-                return builder.not(root.get(property).in(args));
+                return builder.not(path.in(inArguments()));
         }
 
         return null;
     }
 
-    public Predicate toPredicateWithChilds(
-            Root<T> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
-        Predicate result = null;
-        List<Object> args = castArgumentsWithChilds(root);
-        Object argument = args.get(0);
-        switch (RsqlSearchOperation.getSimpleOperator(operator)) {
-
-            case EQUAL: {
-                Path path = pathWithChild.<String>get(lastProperty);
-                if ("expression".equals(property)) {
-                    String listArg[] = argument.toString().split(";");
-                    for (int i = 0; i < listArg.length; i++) {
-                        if (listArg[i].indexOf("groupBy") > -1) {
-                            if (!("").equals(listArg[i].split("==")[1])) {
-                                query.groupBy(join.<String>get(listArg[i].split("==")[1]));
-                            }
-                        }
-                        if (listArg[i].indexOf("orderBy") > -1) {
-                            String condition = listArg[i].split("==")[1];
-                            if (!("").equals(condition)) {
-                                String conditions[] = condition.split(",");
-                                if (conditions.length > 1 && ("desc").equals(conditions[1])) {
-                                    query.orderBy(builder.desc(root.<String>get(conditions[0])));
-                                }
-                            }
-                        }
-                    }
-                    break;
-                }
-
-                if (argument instanceof String) {
-                    if (("null").equals(argument)) {
-                        result = builder.isNull(getPreWithChild(root,join));
-                    }
-                    if (path.getJavaType() == Boolean.class) {
-                        String tmp = (String) argument;
-                        String val = "1".equals(tmp) ? "true" : ("0".equals(tmp) ? "false" : tmp);
-                        result = builder.equal(getPreWithChild(root,join), Boolean.valueOf(val));
-                    }
-
-                    if (path.getJavaType() == Double.class) {
-                        return builder.equal(getPreWithChild(root,join), Double.valueOf(argument.toString()));
-                    }
-                    if (path.getJavaType() == BigDecimal.class) {
-                        // return builder.equal(root.get(property),BigDecimal.valueOf(Long.parseLong(argument.toString())));
-                        return builder.equal(getPreWithChild(root,join), BigDecimal.valueOf(Double.valueOf(argument.toString())));
-                    }
-
-                    // check wildcard character of sql
-                    // % _ [ ] ^ -
-
-                    if (((String) argument).contains("%") ||
-                            ((String) argument).contains("_") ||
-                            ((String) argument).contains("[") ||
-                            ((String) argument).contains("]") ||
-                            ((String) argument).contains("^") ||
-                            ((String) argument).contains("-")) {
-                        String finalArgument = ((String) argument)
-                                .replace("%", "!%")
-                                .replace("_", "!_")
-                                .replace("[", "![")
-                                .replace("]", "!]")
-                                .replace("^", "!^")
-                                .replace("-", "!-");
-                        result = builder.like(
-                                getPreWithChild(root,join), finalArgument.replace("%20", " ").replace('*', '%'), '!');
-                    }
-
-                    result = builder.like(
-                            getPreWithChild(root,join), argument.toString().replace("%20", " ").replace('*', '%'));
-                } else if (argument == null) {
-                    result = builder.isNull(getPreWithChild(root,join));
-                } else {
-                    result = builder.equal(getPreWithChild(root,join), argument);
-                }
-                break;
-            }
-            case NOT_EQUAL: {
-                if (argument instanceof String) {
-                    // check wildcard character of sql
-                    // % _ [ ] ^ -
-
-                    if (((String) argument).contains("%") ||
-                            ((String) argument).contains("_") ||
-                            ((String) argument).contains("[") ||
-                            ((String) argument).contains("]") ||
-                            ((String) argument).contains("^") ||
-                            ((String) argument).contains("-")) {
-                        String finalArgument = ((String) argument)
-                                .replace("%", "!%")
-                                .replace("_", "!_")
-                                .replace("[", "![")
-                                .replace("]", "!]")
-                                .replace("^", "!^")
-                                .replace("-", "!-");
-                        result = builder.notLike(
-                                getPreWithChild(root,join), finalArgument.replace("%20", " ").replace('*', '%'), '!');
-                    }
-
-                    result = builder.notLike(
-                            getPreWithChild(root,join), argument.toString().replace("%20", " ").replace('*', '%'));
-                } else if (argument == null) {
-                    result = builder.isNotNull(getPreWithChild(root,join));
-                } else {
-                    result = builder.notEqual(getPreWithChild(root,join), argument);
-                }
-                break;
-            }
-            case GREATER_THAN: {
-                result = builder.greaterThan(getPreWithChild(root,join), argument.toString());
-                break;
-            }
-            case GREATER_THAN_OR_EQUAL: {
-                result = builder.greaterThanOrEqualTo(
-                        getPreWithChild(root,join), argument.toString());
-                break;
-            }
-            case LESS_THAN: {
-                result = builder.lessThan(getPreWithChild(root,join), argument.toString());
-                break;
-            }
-            case LESS_THAN_OR_EQUAL: {
-                result = builder.lessThanOrEqualTo(
-                        getPreWithChild(root,join), argument.toString());
-                break;
-            }
-            case IN:
-                result = getPreWithChild(root,join).in(args);
-                break;
-            case NOT_IN:
-                result = builder.not(getPreWithChild(root,join).in(args));
-                break;
+    // =in=(Ha%20Noi,...) giải mã khoảng trắng giống ==
+    private List<Object> inArguments() {
+        List<Object> result = new ArrayList<>(arguments.size());
+        for (Object argument : arguments) {
+            result.add(argument instanceof String ? decodeSpace((String) argument) : argument);
         }
-
-        entityList = null;
-        lastProperty = null;
-        pathWithChild = null;
-        join =  null ;
         return result;
     }
 
-    private Path getPreWithChild(Root<T> root,Join<?,?> join) {
-        return pathWithChild.get(lastProperty);
+    // giữ nguyên cột gốc (không CAST) như root.<String>get(property) trước đây
+    @SuppressWarnings("unchecked")
+    private static Expression<String> stringPath(Path<?> path) {
+        return (Expression<String>) (Expression<?>) path;
     }
 
-    private List<Object> castArguments(Root<T> root) {
-        List<Object> args = new ArrayList<Object>();
-        Class<? extends Object> type = root.get(property).getJavaType();
-
-        for (String argument : arguments) {
-            if (type.equals(Integer.class)) {
-                if (!("null").equals(argument)) {
-                    args.add(Integer.parseInt(argument));
-                } else {
-                    args.add(null);
-                }
-            } else if (type.equals(Long.class)) {
-                if (!("null").equals(argument)) {
-                    args.add(Long.parseLong(argument));
-                } else {
-                    args.add(null);
-                }
-            } else {
-                args.add(argument);
-            }
-        }
-
-        return args;
+    @SuppressWarnings("rawtypes")
+    private static Expression<Comparable> comparablePath(Path<?> path) {
+        return (Expression<Comparable>) (Expression<?>) path;
     }
 
-    private List<Object> castArgumentsWithChilds(Root<T> root) {
-        List<Object> args = new ArrayList<Object>();
-        Class<? extends Object> type = null;
+    private static boolean isRange(ComparisonOperator operator) {
+        RsqlSearchOperation operation = RsqlSearchOperation.getSimpleOperator(operator);
+        return operation == RsqlSearchOperation.GREATER_THAN
+                || operation == RsqlSearchOperation.GREATER_THAN_OR_EQUAL
+                || operation == RsqlSearchOperation.LESS_THAN
+                || operation == RsqlSearchOperation.LESS_THAN_OR_EQUAL;
+    }
 
-        entityList = Arrays.asList(this.property.split(Pattern.quote(".")));
-        for (int i = 0; i < entityList.size() - 1; i++) {
-            String e = entityList.get(i);
+    private static String decodeSpace(String value) {
+        return value.replace("%20", " ");
+    }
 
-            if(pathWithChild==null){
-                pathWithChild = root.get(e);
-                join =  root.join(e);
-            }else{
-                pathWithChild = pathWithChild.get(e);
-                join.join(e);
-            }
-        }
-        lastProperty = entityList.get(entityList.size() - 1);
-        type = pathWithChild.get(lastProperty).getJavaType();
+    // escape ký tự wildcard thật của SQL (% _) và ký tự escape, rồi đổi '*' của RSQL thành '%'
+    private static String toLikePattern(String value) {
+        return value
+                .replace(String.valueOf(LIKE_ESCAPE), LIKE_ESCAPE + String.valueOf(LIKE_ESCAPE))
+                .replace("%", LIKE_ESCAPE + "%")
+                .replace("_", LIKE_ESCAPE + "_")
+                .replace('*', '%');
+    }
 
-        for (String argument : arguments) {
-            if (lastProperty != null) {
-                if (type.equals(Integer.class)) {
-                    if (!("null").equals(argument)) {
-                        args.add(Integer.parseInt(argument));
-                    } else {
-                        args.add(null);
-                    }
-                } else if (type.equals(Long.class)) {
-                    if (!("null").equals(argument)) {
-                        args.add(Long.parseLong(argument));
-                    } else {
-                        args.add(null);
-                    }
-                } else {
-                    args.add(argument);
-                }
-            }
-        }
+    // tham số (dạng chuỗi gốc) mà == cho kết quả giống hệt =in=, để gộp các nhánh OR thành 1 IN
+    static boolean matchesExactlyByIn(String argument) {
+        return argument.indexOf('*') < 0 && !argument.contains("%20") && !"null".equals(argument)
+                && ASCII_VALUE.matcher(argument).matches();
+    }
 
-        return args;
+    // '*abc' không dùng được index
+    static boolean isLeadingWildcard(Object argument) {
+        return argument instanceof String && ((String) argument).startsWith("*");
     }
 }
@@ -0,0 +1,37 @@
+package com.stc.project.rsql;
+
+import cz.jirutka.rsql.parser.ast.LogicalOperator;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// AND/OR của nhiều node con dựng thành 1 predicate n-ary (a AND b AND c) thay vì lồng nhau từng cặp ((a AND b) AND c).
+// Bất biến như GenericRsqlSpecification nên dùng chung được giữa nhiều thread
+public class RsqlLogicalSpecification<T> implements Specification<T> {
+
+    private final LogicalOperator operator;
+    private final List<Specification<T>> children;
+
+    public RsqlLogicalSpecification(LogicalOperator operator, List<Specification<T>> children) {
+        this.operator = operator;
+        this.children = List.copyOf(children);
+    }
+
+    @Override
+    public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
+        List<Predicate> predicates = new ArrayList<>(children.size());
+        for (Specification<T> child : children) {
+            Predicate predicate = child.toPredicate(root, query, builder);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        Predicate[] array = predicates.toArray(new Predicate[0]);
+        return operator == LogicalOperator.AND ? builder.and(array) : builder.or(array);
+    }
+}
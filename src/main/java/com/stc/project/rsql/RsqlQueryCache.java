@@ -0,0 +1,100 @@
+package com.stc.project.rsql;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import cz.jirutka.rsql.parser.RSQLParser;
+import cz.jirutka.rsql.parser.ast.Node;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache các câu query RSQL đã biên dịch, khóa theo (entity, query đã chuẩn hóa).
+ * Dashboard gửi đi gửi lại cùng 1 nhóm filter nên parse + dựng Specification chỉ làm 1 lần cho mỗi filter.
+ * Caffeine dùng thuật toán W-TinyLFU nên các filter hiếm gặp không đẩy được các filter "nóng" ra khỏi cache.
+ */
+@Component
+public class RsqlQueryCache {
+
+    // RSQLParser không giữ state giữa các lần parse nên dùng chung được
+    private final RSQLParser parser = new RSQLParser();
+
+    private final RsqlSelectorRegistry selectorRegistry;
+
+    private final Cache<CacheKey, CompiledRsqlQuery<?>> cache;
+
+    public RsqlQueryCache(RsqlSelectorRegistry selectorRegistry,
+                          @Value("${rsql.query-cache.max-size:1000}") long maxSize) {
+        this.selectorRegistry = selectorRegistry;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    // Lấy bản biên dịch từ cache, nếu chưa có thì parse + biên dịch rồi lưu lại.
+    // Query sai cú pháp (RSQLParserException) hoặc dùng selector lạ (AppException) không bị cache.
+    @SuppressWarnings("unchecked")
+    public <T> CompiledRsqlQuery<T> compile(Class<T> entityType, String query) {
+        String normalized = normalize(query);
+        return (CompiledRsqlQuery<T>) cache.get(new CacheKey(entityType, normalized),
+                key -> doCompile(entityType, normalized));
+    }
+
+    private <T> CompiledRsqlQuery<T> doCompile(Class<T> entityType, String normalized) {
+        Node ast = parser.parse(normalized);
+        Specification<T> spec = ast.accept(new CustomRsqlVisitor<T>(entityType, selectorRegistry));
+        return new CompiledRsqlQuery<>(entityType, normalized, ast, spec, RsqlQueryCost.of(entityType, ast, selectorRegistry));
+    }
+
+    // Bỏ toàn bộ khoảng trắng nằm ngoài dấu nháy: với RSQL khoảng trắng đó không có nghĩa,
+    // nhờ vậy "a==1; b==2" và "a==1;b==2" dùng chung 1 entry trong cache
+    public static String normalize(String query) {
+        StringBuilder sb = new StringBuilder(query.length());
+        char quote = 0;
+        boolean escaped = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (quote != 0) {
+                sb.append(c);
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+                sb.append(c);
+            } else if (!Character.isWhitespace(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    // Số liệu hit/miss/eviction để theo dõi hiệu quả của cache
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("averageCompileNanos", stats.averageLoadPenalty());
+        return result;
+    }
+
+    private record CacheKey(Class<?> entityType, String query) {
+    }
+}
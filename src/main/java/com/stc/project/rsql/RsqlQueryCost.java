@@ -0,0 +1,87 @@
+package com.stc.project.rsql;
+
+import cz.jirutka.rsql.parser.ast.ComparisonNode;
+import cz.jirutka.rsql.parser.ast.LogicalNode;
+import cz.jirutka.rsql.parser.ast.Node;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Chi phí ước lượng của 1 câu query RSQL, tính trên AST trước khi chạy SQL.
+ * Mỗi thành phần có trọng số riêng, tổng lại thành score để so với ngân sách của role (RsqlQueryGuard).
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RsqlQueryCost {
+
+    static final int COMPARISON_WEIGHT = 5;
+    static final int ARGUMENT_WEIGHT = 1;
+    static final int JOIN_WEIGHT = 10;
+    static final int LEADING_WILDCARD_WEIGHT = 100;
+    static final int UNINDEXED_WEIGHT = 20;
+
+    // số node so sánh
+    int comparisons;
+
+    // tổng số tham số (=in=(a,b,c) tính 3)
+    int arguments;
+
+    // số association phải join sâu nhất của 1 selector
+    int maxJoinDepth;
+
+    // tổng số bước join của mọi node so sánh
+    int joinHops;
+
+    // số tham số dạng '*abc' (không dùng được index)
+    int leadingWildcards;
+
+    // số node so sánh trên cột không có index
+    int unindexedComparisons;
+
+    public int score() {
+        return comparisons * COMPARISON_WEIGHT
+                + arguments * ARGUMENT_WEIGHT
+                + joinHops * JOIN_WEIGHT
+                + leadingWildcards * LEADING_WILDCARD_WEIGHT
+                + unindexedComparisons * UNINDEXED_WEIGHT;
+    }
+
+    public static RsqlQueryCost of(Class<?> entityType, Node ast, RsqlSelectorRegistry selectorRegistry) {
+        Counter counter = new Counter();
+        counter.collect(entityType, ast, selectorRegistry);
+        return new RsqlQueryCost(counter.comparisons, counter.arguments, counter.maxJoinDepth,
+                counter.joinHops, counter.leadingWildcards, counter.unindexedComparisons);
+    }
+
+    private static class Counter {
+        int comparisons;
+        int arguments;
+        int maxJoinDepth;
+        int joinHops;
+        int leadingWildcards;
+        int unindexedComparisons;
+
+        void collect(Class<?> entityType, Node node, RsqlSelectorRegistry selectorRegistry) {
+            if (node instanceof LogicalNode) {
+                for (Node child : ((LogicalNode) node).getChildren()) {
+                    collect(entityType, child, selectorRegistry);
+                }
+                return;
+            }
+            ComparisonNode comparison = (ComparisonNode) node;
+            comparisons++;
+            arguments += comparison.getArguments().size();
+            RsqlSelector selector = selectorRegistry.resolve(entityType, comparison.getSelector());
+            maxJoinDepth = Math.max(maxJoinDepth, selector.getJoins().size());
+            joinHops += selector.getJoins().size();
+            leadingWildcards += (int) comparison.getArguments().stream()
+                    .filter(GenericRsqlSpecification::isLeadingWildcard).count();
+            if (!selector.isIndexed()) {
+                unindexedComparisons++;
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.stc.project.rsql;
+
+import com.stc.project.exception.AppException;
+import com.stc.project.exception.ErrorCode;
+import com.stc.project.utils.SecurityUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chặn query search quá nặng trước khi chạy SQL: so chi phí ước lượng của AST (RsqlQueryCost)
+ * và page size với ngân sách của role hiện tại. Wildcard đầu ('*abc') làm MySQL quét toàn bảng kể cả trên cột có index
+ * nên ngoài trọng số trong score còn bị giới hạn số lần dùng riêng (MANAGER mặc định không được dùng). ADMIN và MANAGER có ngân sách riêng, cấu hình trong application.properties.
+ * /export đọc toàn bộ kết quả nên sort theo cột không có index là filesort trên cả bảng, chỉ role được cấu hình mới được dùng.
+ */
+@Slf4j
+@Component
+public class RsqlQueryGuard {
+
+    private final int adminMaxCost;
+    private final int adminMaxJoinDepth;
+    private final int adminMaxPageSize;
+    private final int adminMaxLeadingWildcards;
+    private final int adminMaxGroups;
+    private final boolean adminUnindexedExportSort;
+    private final int managerMaxCost;
+    private final int managerMaxJoinDepth;
+    private final int managerMaxPageSize;
+    private final int managerMaxLeadingWildcards;
+    private final int managerMaxGroups;
+    private final boolean managerUnindexedExportSort;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedByCost = new LongAdder();
+    private final LongAdder rejectedByJoinDepth = new LongAdder();
+    private final LongAdder rejectedByLeadingWildcard = new LongAdder();
+    private final LongAdder rejectedByPageSize = new LongAdder();
+    private final LongAdder rejectedByGroups = new LongAdder();
+    private final LongAdder rejectedByExportSort = new LongAdder();
+
+    public RsqlQueryGuard(@Value("${search.budget.admin.max-cost:2000}") int adminMaxCost,
+                          @Value("${search.budget.admin.max-join-depth:2}") int adminMaxJoinDepth,
+                          @Value("${search.budget.admin.max-page-size:2000}") int adminMaxPageSize,
+                          @Value("${search.budget.admin.max-leading-wildcards:1}") int adminMaxLeadingWildcards,
+                          @Value("${search.budget.admin.max-groups:10000}") int adminMaxGroups,
+                          @Value("${search.budget.admin.unindexed-export-sort:true}") boolean adminUnindexedExportSort,
+                          @Value("${search.budget.manager.max-cost:500}") int managerMaxCost,
+                          @Value("${search.budget.manager.max-join-depth:2}") int managerMaxJoinDepth,
+                          @Value("${search.budget.manager.max-page-size:200}") int managerMaxPageSize,
+                          @Value("${search.budget.manager.max-leading-wildcards:0}") int managerMaxLeadingWildcards,
+                          @Value("${search.budget.manager.max-groups:1000}") int managerMaxGroups,
+                          @Value("${search.budget.manager.unindexed-export-sort:false}") boolean managerUnindexedExportSort) {
+        this.adminMaxCost = adminMaxCost;
+        this.adminMaxJoinDepth = adminMaxJoinDepth;
+        this.adminMaxPageSize = adminMaxPageSize;
+        this.adminMaxLeadingWildcards = adminMaxLeadingWildcards;
+        this.adminMaxGroups = adminMaxGroups;
+        this.adminUnindexedExportSort = adminUnindexedExportSort;
+        this.managerMaxCost = managerMaxCost;
+        this.managerMaxJoinDepth = managerMaxJoinDepth;
+        this.managerMaxPageSize = managerMaxPageSize;
+        this.managerMaxLeadingWildcards = managerMaxLeadingWildcards;
+        this.managerMaxGroups = managerMaxGroups;
+        this.managerUnindexedExportSort = managerUnindexedExportSort;
+    }
+
+    public void checkQuery(RsqlQueryCost cost) {
+        boolean admin = SecurityUtil.isAdmin();
+        if (cost.getMaxJoinDepth() > (admin ? adminMaxJoinDepth : managerMaxJoinDepth)) {
+            rejectedByJoinDepth.increment();
+            log.warn("Rejected RSQL query of {}: join depth {}", SecurityUtil.getCurrentUserLogin(), cost.getMaxJoinDepth());
+            throw new AppException(ErrorCode.SEARCH_QUERY_TOO_COMPLEX);
+        }
+        if (cost.getLeadingWildcards() > (admin ? adminMaxLeadingWildcards : managerMaxLeadingWildcards)) {
+            rejectedByLeadingWildcard.increment();
+            log.warn("Rejected RSQL query of {}: {} leading wildcards", SecurityUtil.getCurrentUserLogin(), cost.getLeadingWildcards());
+            throw new AppException(ErrorCode.SEARCH_QUERY_TOO_COMPLEX);
+        }
+        if (cost.score() > (admin ? adminMaxCost : managerMaxCost)) {
+            rejectedByCost.increment();
+            log.warn("Rejected RSQL query of {}: cost {}", SecurityUtil.getCurrentUserLogin(), cost.score());
+            throw new AppException(ErrorCode.SEARCH_QUERY_TOO_COMPLEX);
+        }
+        admitted.increment();
+    }
+
+    public void checkPageSize(int pageSize) {
+        if (pageSize > (SecurityUtil.isAdmin() ? adminMaxPageSize : managerMaxPageSize)) {
+            rejectedByPageSize.increment();
+            log.warn("Rejected search page size {} of {}", pageSize, SecurityUtil.getCurrentUserLogin());
+            throw new AppException(ErrorCode.SEARCH_PAGE_SIZE_TOO_LARGE);
+        }
+    }
+
+    // số nhóm tối đa 1 query /aggregate được trả về, query GROUP BY chỉ đọc thêm 1 dòng để biết có vượt hay không
+    public int maxGroups() {
+        return SecurityUtil.isAdmin() ? adminMaxGroups : managerMaxGroups;
+    }
+
+    public void checkGroups(int groups) {
+        if (groups > maxGroups()) {
+            rejectedByGroups.increment();
+            log.warn("Rejected aggregate of {}: more than {} groups", SecurityUtil.getCurrentUserLogin(), maxGroups());
+            throw new AppException(ErrorCode.TOO_MANY_AGGREGATE_GROUPS);
+        }
+    }
+
+    // cột sort của /export (đã resolve qua RsqlSelectorRegistry) phải có index, trừ khi role được phép sort cột không có index
+    public void checkExportSort(List<RsqlSelector> sort) {
+        if (SecurityUtil.isAdmin() ? adminUnindexedExportSort : managerUnindexedExportSort) {
+            return;
+        }
+        for (RsqlSelector selector : sort) {
+            if (!selector.isIndexed()) {
+                rejectedByExportSort.increment();
+                log.warn("Rejected export of {}: sort by unindexed {}", SecurityUtil.getCurrentUserLogin(), selector.getSelector());
+                throw new AppException(ErrorCode.SEARCH_QUERY_TOO_COMPLEX);
+            }
+        }
+    }
+
+    // số query được cho chạy / bị từ chối theo từng lý do
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("admitted", admitted.sum());
+        result.put("rejectedByCost", rejectedByCost.sum());
+        result.put("rejectedByJoinDepth", rejectedByJoinDepth.sum());
+        result.put("rejectedByLeadingWildcard", rejectedByLeadingWildcard.sum());
+        result.put("rejectedByPageSize", rejectedByPageSize.sum());
+        result.put("rejectedByGroups", rejectedByGroups.sum());
+        result.put("rejectedByExportSort", rejectedByExportSort.sum());
+        return result;
+    }
+}
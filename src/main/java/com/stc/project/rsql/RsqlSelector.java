@@ -0,0 +1,96 @@
+package com.stc.project.rsql;
+
+import com.stc.project.exception.AppException;
+import com.stc.project.exception.ErrorCode;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 1 selector được phép dùng trong query RSQL, tính sẵn từ JPA Metamodel lúc khởi động:
+ * các association cần join, tên thuộc tính cuối, kiểu Java và hàm chuyển đổi tham số tương ứng.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RsqlSelector {
+
+    // tên selector dùng trong query, vd "building.project.code"
+    String selector;
+
+    // các association phải join theo thứ tự, vd ["building", "project"]
+    List<String> joins;
+
+    // thuộc tính cuối cùng, vd "code"
+    String attribute;
+
+    Class<?> javaType;
+
+    Function<String, Object> converter;
+
+    // cột có index (khóa chính, cột unique hoặc cột đầu của 1 @Index), dùng cho ước lượng chi phí query
+    boolean indexed;
+
+    // chuyển tham số dạng chuỗi về đúng kiểu của thuộc tính, "null" -> null
+    public Object convert(String argument) {
+        if (argument == null || "null".equals(argument)) {
+            return null;
+        }
+        try {
+            return converter.apply(argument);
+        } catch (RuntimeException e) {
+            throw new AppException(ErrorCode.INVALID_SEARCH_QUERY);
+        }
+    }
+
+    public boolean isNested() {
+        return !joins.isEmpty();
+    }
+
+    // Lấy path của selector trên root của query hiện tại, joinTypes[i] là kiểu join cho joins[i].
+    // Join đã có trên cùng association với cùng kiểu join thì dùng lại, mỗi association chỉ join 1 lần.
+    public Path<Object> toPath(From<?, ?> root, List<JoinType> joinTypes) {
+        From<?, ?> from = root;
+        for (int i = 0; i < joins.size(); i++) {
+            from = getOrCreateJoin(from, joins.get(i), joinTypes.get(i));
+        }
+        return from.get(attribute);
+    }
+
+    // Path cho cột chỉ được SELECT/GROUP BY/ORDER BY thêm vào query đã có WHERE từ Specification:
+    // dùng lại join mà Specification đã tạo trên association (INNER hay LEFT đều được),
+    // chưa có thì LEFT JOIN để dòng không có bản ghi cha vẫn được trả về
+    public Path<Object> toSelectionPath(From<?, ?> root) {
+        From<?, ?> from = root;
+        for (String join : joins) {
+            from = joinForSelection(from, join);
+        }
+        return from.get(attribute);
+    }
+
+    public static From<?, ?> joinForSelection(From<?, ?> from, String attribute) {
+        for (Join<?, ?> join : from.getJoins()) {
+            if (join.getAttribute().getName().equals(attribute)) {
+                return join;
+            }
+        }
+        return from.join(attribute, JoinType.LEFT);
+    }
+
+    private static From<?, ?> getOrCreateJoin(From<?, ?> from, String attribute, JoinType joinType) {
+        for (Join<?, ?> join : from.getJoins()) {
+            if (join.getAttribute().getName().equals(attribute) && join.getJoinType() == joinType) {
+                return join;
+            }
+        }
+        return from.join(attribute, joinType);
+    }
+}
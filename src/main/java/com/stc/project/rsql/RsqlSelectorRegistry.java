@@ -0,0 +1,175 @@
+package com.stc.project.rsql;
+
+import com.stc.project.exception.AppException;
+import com.stc.project.exception.ErrorCode;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.model.User;
+import jakarta.persistence.Column;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.SingularAttribute;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Member;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Bảng tra selector RSQL cho từng entity, dựng 1 lần từ JPA Metamodel khi khởi động.
+ * Gồm toàn bộ thuộc tính basic của entity và của các association @ManyToOne (tối đa MAX_DEPTH cấp),
+ * vd Apartment có "code", "building.code", "building.project.name".
+ * Association dạng collection không được đưa vào vì join sẽ nhân bản số dòng.
+ */
+@Slf4j
+@Component
+public class RsqlSelectorRegistry {
+
+    private static final int MAX_DEPTH = 2;
+
+    // các entity được phép search bằng RSQL
+    private static final List<Class<?>> SEARCHABLE_ENTITIES = List.of(Project.class, Building.class, Apartment.class, User.class);
+
+    // các cột nhạy cảm không cho filter
+    private static final Map<Class<?>, Set<String>> EXCLUDED_SELECTORS = Map.of(
+            User.class, Set.of("hashedPassword", "otp", "otpExpiryTime", "otpUsed", "otpAttemptCount", "otpLockedUntil")
+    );
+
+    // kiểu không có trong bảng này thì thuộc tính không được filter (không so sánh chuỗi với cột khác kiểu)
+    private static final Map<Class<?>, Function<String, Object>> CONVERTERS = Map.of(
+            String.class, value -> value,
+            Integer.class, Integer::valueOf,
+            Long.class, Long::valueOf,
+            Float.class, Float::valueOf,
+            Double.class, Double::valueOf,
+            BigDecimal.class, BigDecimal::new,
+            Boolean.class, RsqlSelectorRegistry::toBoolean,
+            LocalDate.class, LocalDate::parse,
+            LocalDateTime.class, RsqlSelectorRegistry::toLocalDateTime
+    );
+
+    private final Map<Class<?>, Map<String, RsqlSelector>> selectors = new HashMap<>();
+
+    public RsqlSelectorRegistry(EntityManagerFactory entityManagerFactory) {
+        Metamodel metamodel = entityManagerFactory.getMetamodel();
+        for (Class<?> entityClass : SEARCHABLE_ENTITIES) {
+            Map<String, RsqlSelector> table = new LinkedHashMap<>();
+            collect(metamodel, metamodel.entity(entityClass), "", List.of(),
+                    EXCLUDED_SELECTORS.getOrDefault(entityClass, Set.of()), table);
+            selectors.put(entityClass, Collections.unmodifiableMap(table));
+            log.debug("RSQL selectors for {}: {}", entityClass.getSimpleName(), table.keySet());
+        }
+    }
+
+    private void collect(Metamodel metamodel, EntityType<?> entityType, String prefix, List<String> joins,
+                         Set<String> excluded, Map<String, RsqlSelector> table) {
+        for (SingularAttribute<?, ?> attribute : entityType.getSingularAttributes()) {
+            String name = attribute.getName();
+            String selector = prefix + name;
+            if (excluded.contains(selector)) {
+                continue;
+            }
+            Attribute.PersistentAttributeType type = attribute.getPersistentAttributeType();
+            if (type == Attribute.PersistentAttributeType.BASIC) {
+                Class<?> javaType = ClassUtils.resolvePrimitiveIfNecessary(attribute.getJavaType());
+                Function<String, Object> converter = CONVERTERS.get(javaType);
+                if (converter == null) {
+                    log.debug("Skip RSQL selector '{}': no converter for {}", selector, javaType.getName());
+                    continue;
+                }
+                boolean indexed = attribute.isId() || isUnique(attribute)
+                        || indexedColumns(entityType.getJavaType()).contains(columnName(attribute));
+                table.put(selector, new RsqlSelector(selector, joins, name, javaType, converter, indexed));
+            } else if ((type == Attribute.PersistentAttributeType.MANY_TO_ONE
+                    || type == Attribute.PersistentAttributeType.ONE_TO_ONE) && joins.size() < MAX_DEPTH) {
+                List<String> childJoins = new ArrayList<>(joins);
+                childJoins.add(name);
+                collect(metamodel, metamodel.entity(attribute.getJavaType()), selector + ".",
+                        List.copyOf(childJoins), excluded, table);
+            }
+        }
+    }
+
+    // cột đầu tiên của mỗi @Index và mỗi unique constraint khai báo trên entity
+    // (index nhiều cột chỉ dùng được khi filter theo cột đầu)
+    private static Set<String> indexedColumns(Class<?> entityClass) {
+        Table table = entityClass.getAnnotation(Table.class);
+        if (table == null) {
+            return Set.of();
+        }
+        Set<String> columns = new HashSet<>();
+        for (Index index : table.indexes()) {
+            columns.add(index.columnList().split(",")[0].trim().toLowerCase());
+        }
+        for (UniqueConstraint constraint : table.uniqueConstraints()) {
+            if (constraint.columnNames().length > 0) {
+                columns.add(constraint.columnNames()[0].trim().toLowerCase());
+            }
+        }
+        return columns;
+    }
+
+    // @Column(unique = true) cũng tạo unique index
+    private static boolean isUnique(SingularAttribute<?, ?> attribute) {
+        Column column = columnOf(attribute);
+        return column != null && column.unique();
+    }
+
+    // tên cột khai báo trong @Column, không có thì theo naming strategy mặc định của Spring: totalArea -> total_area
+    private static String columnName(SingularAttribute<?, ?> attribute) {
+        Column column = columnOf(attribute);
+        if (column != null && !column.name().isEmpty()) {
+            return column.name().toLowerCase();
+        }
+        return attribute.getName().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+    }
+
+    private static Column columnOf(SingularAttribute<?, ?> attribute) {
+        Member member = attribute.getJavaMember();
+        return member instanceof AnnotatedElement ? ((AnnotatedElement) member).getAnnotation(Column.class) : null;
+    }
+
+    // Tra selector của entity, selector không có trong bảng bị từ chối trước khi dựng SQL
+    public RsqlSelector resolve(Class<?> entityClass, String selector) {
+        RsqlSelector result = selectorsOf(entityClass).get(selector);
+        if (result == null) {
+            log.warn("Rejected unknown RSQL selector '{}' for {}", selector, entityClass.getSimpleName());
+            throw new AppException(ErrorCode.UNKNOWN_SEARCH_FIELD);
+        }
+        return result;
+    }
+
+    public Map<String, RsqlSelector> selectorsOf(Class<?> entityClass) {
+        Map<String, RsqlSelector> table = selectors.get(entityClass);
+        if (table == null) {
+            throw new IllegalStateException("Entity " + entityClass.getName() + " is not searchable by RSQL");
+        }
+        return table;
+    }
+
+    // createdAt=ge=2025-01-01 được hiểu là từ đầu ngày 2025-01-01
+    private static Object toLocalDateTime(String value) {
+        if (value.length() == 10) {
+            return LocalDate.parse(value).atStartOfDay();
+        }
+        return LocalDateTime.parse(value);
+    }
+
+    private static Object toBoolean(String value) {
+        if ("1".equals(value)) return Boolean.TRUE;
+        if ("0".equals(value)) return Boolean.FALSE;
+        return Boolean.valueOf(value);
+    }
+}
@@ -7,9 +7,13 @@ import com.stc.project.model.Building;
 import com.stc.project.repository.ApartmentRepository;
 import com.stc.project.repository.BuildingRepository;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 
 @Service
@@ -76,6 +80,17 @@ public class ApartmentService extends CrudService<Apartment, Long> {
     }
 
 
+    // nạp 1 lần toàn bộ tòa nhà được tham chiếu trong lô, assignAndValidateBuilding lấy lại từ persistence context
+    @Override
+    protected void prefetch(List<Apartment> apartments, boolean update) {
+        super.prefetch(apartments, update);
+        List<Long> buildingIds = apartments.stream().map(Apartment::getBuildingId)
+                .filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (!buildingIds.isEmpty()) {
+            buildingRepository.findAllById(buildingIds);
+        }
+    }
+
     // check thằng cha còn active hay ko thì mới restore thằng con được
     @Override
     protected void beforeRestore(Apartment apartment) {
@@ -86,6 +101,11 @@ public class ApartmentService extends CrudService<Apartment, Long> {
         }
     }
 
+    @Override
+    protected String restoreParent() {
+        return "building";
+    }
+
 
 
 }
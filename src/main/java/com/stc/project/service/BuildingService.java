@@ -8,15 +8,15 @@ import com.stc.project.model.Project;
 import com.stc.project.repository.ApartmentRepository;
 import com.stc.project.repository.BuildingRepository;
 import com.stc.project.repository.ProjectRepository;
-import com.stc.project.utils.SecurityUtil;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -57,18 +57,15 @@ public class BuildingService extends CrudService<Building, Long> {
 
             boolean codeChanged = !oldCode.equals(newCode);
 
-            if (codeChanged) {
-                List<Apartment> apartments = apartmentRepository.findByBuilding_Id(newBuilding.getId());
-                for (Apartment apartment : apartments) {
-                    String aptCode = apartment.getCode();
-                    if (aptCode != null && aptCode.contains(oldCode)) {
-                        apartment.setCode(aptCode.replaceFirst(Pattern.quote(oldCode), newCode));
-                    }
-                }
-            }
-
+            // validate trước khi ghi: trong PUT /batch phần tử lỗi chỉ bị bỏ qua còn lô vẫn commit,
+            // UPDATE căn hộ chạy trước validate sẽ đổi code căn hộ của tòa nhà không được sửa
             assignAndValidateProject(newBuilding);
 
+            // đổi tiền tố code của căn hộ thuộc tòa nhà bằng UPDATE hàng loạt, cùng transaction với lần update này
+            if (codeChanged && renameChildCodes(apartmentRepository, "building", newBuilding.getId(), oldCode, newCode) > 0) {
+                countCache.invalidate(Apartment.class);
+            }
+
         } catch (Exception e) {
             throw new RuntimeException("Error during building update: " + e.getMessage(), e);
         }
@@ -105,73 +102,66 @@ public class BuildingService extends CrudService<Building, Long> {
         building.setProject(project);
     }
 
-    // khi deactive tòa nhà đồng thời cx phải deactive căn hộ thuộc nó
+    // khi deactive tòa nhà đồng thời cx phải deactive căn hộ thuộc nó (1 câu UPDATE cho toàn bộ căn hộ đang ACTIVE)
     @Override
     public void deactivate(Long id) {
         try {
             super.deactivate(id);
-            List<Apartment> apartments = apartmentRepository.findByBuilding_Id(id);
-            for (Apartment apartment : apartments) {
-                if (apartment.getActive() == Constants.EntityStatus.ACTIVE) {
-                    apartment.setActive(Constants.EntityStatus.DEACTIVATED);
-                    apartment.setDeactivatedAt(LocalDateTime.now());
-                    apartment.setUpdatedBy(SecurityUtil.getCurrentUserLogin());
-                    apartmentRepository.save(apartment);
-                }
-            }
+            cascadeToApartments(List.of(Constants.EntityStatus.ACTIVE), deactivateChanges(), List.of(id));
         } catch (Exception e) {
             throw new RuntimeException("Error while deactivating building and its apartments: " + e.getMessage(), e);
         }
     }
 
-    // khi xóa mềm tòa nhà đồng thời cx phải xóa mềm căn hộ thuộc nó
+    // khi xóa mềm tòa nhà đồng thời cx phải xóa mềm căn hộ thuộc nó (căn hộ chưa nằm trong thùng rác)
     @Override
     public void moveToTrash(Long id) {
         try {
             super.moveToTrash(id);
-
-            List<Apartment> apartments = apartmentRepository.findByBuilding_Id(id);
-            for (Apartment apartment : apartments) {
-                if (apartment.getActive() != Constants.EntityStatus.IN_ACTIVE) {
-                    apartment.setActive(Constants.EntityStatus.IN_ACTIVE);
-                    apartment.setDeletedAt(LocalDateTime.now());
-                    apartment.setDeactivatedAt(null);
-                    apartment.setUpdatedBy(SecurityUtil.getCurrentUserLogin());
-                    apartmentRepository.save(apartment);
-                }
-            }
+            cascadeToApartments(List.of(Constants.EntityStatus.ACTIVE, Constants.EntityStatus.DEACTIVATED), trashChanges(), List.of(id));
         } catch (Exception e) {
             throw new RuntimeException("Error while soft-deleting building and its apartments: " + e.getMessage(), e);
         }
     }
 
-    // khi Xóa mềm building đồng thời cx phải xóa mềm toàn bộ apt thuộc tòa nhà đó
+    // khi Xóa mềm building đồng thời cx phải xóa mềm toàn bộ apt đang bị vô hiệu hóa thuộc tòa nhà đó
     @Override
-    public void moveDeactivateToTrashAll() {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long moveDeactivateToTrashAll() {
         try {
-            super.moveDeactivateToTrashAll();
-
-            List<Building> trashedBuildings = buildingRepository.findAll().stream()
-                    .filter(b -> b.getActive() == Constants.EntityStatus.DEACTIVATED)
-                    .collect(Collectors.toList());
-
-            for (Building building : trashedBuildings) {
-                List<Apartment> apartments = apartmentRepository.findByBuilding_Id(building.getId());
-                for (Apartment apartment : apartments) {
-                    if (apartment.getActive() == Constants.EntityStatus.DEACTIVATED) {
-                        apartment.setActive(Constants.EntityStatus.IN_ACTIVE);
-                        apartment.setDeletedAt(LocalDateTime.now());
-                        apartment.setDeactivatedAt(null);
-                        apartment.setUpdatedBy(SecurityUtil.getCurrentUserLogin());
-                        apartmentRepository.save(apartment);
-                    }
-                }
-            }
+            // lấy id trước, sau khi chuyển vào thùng rác không còn phân biệt được tòa nhà nào vừa bị xóa mềm
+            List<Long> buildingIds = buildingRepository.findIdsByActive(Constants.EntityStatus.DEACTIVATED);
+            long count = super.moveDeactivateToTrashAll();
+
+            Map<String, Object> changes = trashChanges();
+            cascadeInChunks(buildingIds, ids ->
+                    cascadeToApartments(List.of(Constants.EntityStatus.DEACTIVATED), changes, ids));
+            return count;
         } catch (Exception e) {
             throw new RuntimeException("Error while soft-deleting deactivated buildings and related apartments: " + e.getMessage(), e);
         }
     }
 
+    // UPDATE căn hộ có trạng thái fromActive thuộc các tòa nhà buildingIds
+    private int cascadeToApartments(List<Integer> fromActive, Map<String, Object> changes, List<Long> buildingIds) {
+        int apartments = apartmentRepository.bulkUpdateByParent(fromActive, changes, "building", null, buildingIds);
+        if (apartments > 0) {
+            countCache.invalidate(Apartment.class);
+        }
+        return apartments;
+    }
+
+    // nạp 1 lần toàn bộ dự án được tham chiếu trong lô, assignAndValidateProject lấy lại từ persistence context
+    @Override
+    protected void prefetch(List<Building> buildings, boolean update) {
+        super.prefetch(buildings, update);
+        List<Long> projectIds = buildings.stream().map(Building::getProjectId)
+                .filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (!projectIds.isEmpty()) {
+            projectRepository.findAllById(projectIds);
+        }
+    }
+
     // check thằng cha còn active hay ko thì mới restore thằng con được
     @Override
     protected void beforeRestore(Building building) {
@@ -182,7 +172,23 @@ public class BuildingService extends CrudService<Building, Long> {
         }
     }
 
+    @Override
+    protected String restoreParent() {
+        return "project";
+    }
+
+    // xóa vĩnh viễn tòa nhà thì xóa căn hộ thuộc nó trước (khóa ngoại building_id)
+    @Override
+    protected long beforePurge(List<Long> ids) {
+        int apartments = apartmentRepository.deleteByBuildingIds(ids);
+        if (apartments > 0) {
+            countCache.invalidate(Apartment.class);
+        }
+        return apartments;
+    }
+
     // hàm này sd trong trang thống kê
+    @Transactional(readOnly = true)
     public long countActiveBuildings() {
         return buildingRepository.countActiveBuildings();
     }
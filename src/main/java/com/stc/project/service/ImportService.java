@@ -0,0 +1,275 @@
+package com.stc.project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stc.project.constants.Constants;
+import com.stc.project.core.ImportJob;
+import com.stc.project.core.ImportRowReader;
+import com.stc.project.exception.AppException;
+import com.stc.project.exception.ErrorCode;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.IdEntity;
+import com.stc.project.model.Project;
+import com.stc.project.utils.SecurityUtil;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Import hàng loạt căn hộ / tòa nhà từ file NDJSON hoặc CSV, chạy nền.
+ * File được chép ra file tạm rồi đọc từng dòng; bản ghi cha tra theo code trong 1 index nạp sẵn khi bắt đầu job
+ * (code -> id của các bản ghi cha đang ACTIVE) thay vì SELECT cho từng dòng; ghi xuống DB theo lô import.batch-size
+ * (id pooled + hibernate.jdbc.batch_size nên mỗi lô là vài câu INSERT gộp). Dòng lỗi được ghi vào báo cáo của job
+ * và bỏ qua, các dòng khác vẫn được import.
+ */
+@Slf4j
+@Service
+public class ImportService {
+
+    private static final Target<Apartment, Building> APARTMENTS =
+            new Target<>("apartment", Apartment.class, Apartment::getCode, Building.class, "buildingCode", Apartment::setBuilding);
+
+    private static final Target<Building, Project> BUILDINGS =
+            new Target<>("building", Building.class, Building::getCode, Project.class, "projectCode", Building::setProject);
+
+    private final ObjectMapper objectMapper;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transaction;
+
+    private final ExecutorService executor;
+
+    private final Cache<String, ImportJob> jobs;
+
+    @Value("${import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${import.max-errors:1000}")
+    private int maxErrors;
+
+    public ImportService(ObjectMapper objectMapper, EntityManager entityManager, PlatformTransactionManager transactionManager,
+                         @Value("${import.threads:2}") int threads,
+                         @Value("${import.job-retention-minutes:60}") long retentionMinutes) {
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(retentionMinutes))
+                .build();
+    }
+
+    public ImportJob importApartments(InputStream in, String format) throws IOException {
+        return start(APARTMENTS, in, format);
+    }
+
+    public ImportJob importBuildings(InputStream in, String format) throws IOException {
+        return start(BUILDINGS, in, format);
+    }
+
+    public ImportJob getApartmentJob(String jobId) {
+        return getJob(APARTMENTS, jobId);
+    }
+
+    public ImportJob getBuildingJob(String jobId) {
+        return getJob(BUILDINGS, jobId);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private ImportJob getJob(Target<?, ?> target, String jobId) {
+        ImportJob job = jobs.getIfPresent(jobId);
+        if (job == null || !job.getEntity().equals(target.name)) {
+            throw new AppException(ErrorCode.IMPORT_JOB_NOT_FOUND);
+        }
+        return job;
+    }
+
+    // chép request ra file tạm (đọc/ghi theo buffer, không giữ cả file trong heap) rồi xử lý ở thread nền
+    private <T extends IdEntity, P extends IdEntity> ImportJob start(Target<T, P> target, InputStream in, String format)
+            throws IOException {
+        String checkedFormat = ImportRowReader.checkFormat(format);
+        Path file = Files.createTempFile("import-" + target.name + "-", "." + checkedFormat);
+        Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), target.name, maxErrors);
+        jobs.put(job.getId(), job);
+        String username = SecurityUtil.getCurrentUserLogin();
+        executor.submit(() -> run(target, job, file, checkedFormat, username));
+        return job;
+    }
+
+    private <T extends IdEntity, P extends IdEntity> void run(Target<T, P> target, ImportJob job, Path file,
+                                                              String format, String username) {
+        try (InputStream in = Files.newInputStream(file); ImportRowReader reader = ImportRowReader.open(in, format)) {
+            Map<String, Long> parents = parentIndex(target.parentType);
+            List<Row<T>> batch = new ArrayList<>(batchSize);
+            while (true) {
+                Map<String, Object> values;
+                try {
+                    values = reader.next();
+                } catch (IllegalArgumentException e) {
+                    job.rowRead();
+                    job.failed(reader.getLine(), e.getMessage());
+                    continue;
+                }
+                if (values == null) {
+                    break;
+                }
+                job.rowRead();
+                try {
+                    batch.add(toRow(target, values, parents, username, reader.getLine()));
+                } catch (RuntimeException e) {
+                    job.failed(reader.getLine(), message(e));
+                }
+                if (batch.size() >= batchSize) {
+                    write(target, batch, job);
+                    batch.clear();
+                }
+            }
+            write(target, batch, job);
+            job.finish(ImportJob.Status.COMPLETED, null);
+            log.info("Import {} {} completed: {} rows, {} imported, {} failed, {} rows/s", target.name, job.getId(),
+                    job.getRows(), job.getImported(), job.getFailed(), job.getRowsPerSecond());
+        } catch (Exception e) {
+            log.error("Import {} {} aborted at row {}: {}", target.name, job.getId(), job.getRows(), e.getMessage(), e);
+            job.finish(ImportJob.Status.FAILED, message(e));
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Cannot delete import file {}", file, e);
+            }
+        }
+    }
+
+    // code (chữ thường) -> id của các bản ghi cha đang ACTIVE
+    private Map<String, Long> parentIndex(Class<?> parentType) {
+        return transaction.execute(status -> {
+            List<Object[]> rows = entityManager
+                    .createQuery("select p.code, p.id from " + parentType.getSimpleName() + " p where p.active = :active",
+                            Object[].class)
+                    .setParameter("active", Constants.EntityStatus.ACTIVE)
+                    .getResultList();
+            Map<String, Long> index = new HashMap<>(rows.size() * 2);
+            for (Object[] row : rows) {
+                if (row[0] != null) {
+                    index.put(((String) row[0]).toLowerCase(), (Long) row[1]);
+                }
+            }
+            return index;
+        });
+    }
+
+    // Validate 1 dòng giống assignAndValidateBuilding / assignAndValidateProject nhưng tra bản ghi cha trong index
+    private <T extends IdEntity, P extends IdEntity> Row<T> toRow(Target<T, P> target, Map<String, Object> values,
+                                                                  Map<String, Long> parents, String username, long line) {
+        Object parentCode = values.remove(target.parentColumn);
+        values.remove("id");
+        if (parentCode == null) {
+            throw new IllegalArgumentException(target.parentColumn + " must not be null.");
+        }
+        String parentKey = parentCode.toString().trim().toLowerCase();
+        Long parentId = parents.get(parentKey);
+        if (parentId == null) {
+            throw new IllegalArgumentException("Active " + target.parentType.getSimpleName().toLowerCase()
+                    + " with code = " + parentCode + " not found.");
+        }
+
+        T entity = objectMapper.convertValue(values, target.type);
+        String code = target.code.apply(entity) != null ? target.code.apply(entity).toLowerCase() : "";
+        if (!code.contains(parentKey)) {
+            throw new IllegalArgumentException("The code of the " + target.name + " does not match the code of the "
+                    + target.parentType.getSimpleName().toLowerCase() + ". Please check again.");
+        }
+        entity.setCreatedBy(username);
+        if (entity.getActive() == null) {
+            entity.setActive(Constants.EntityStatus.ACTIVE);
+        }
+        return new Row<>(line, entity, parentId);
+    }
+
+    // Ghi 1 lô trong 1 transaction; lô lỗi (vd trùng dữ liệu) được ghi lại từng dòng để tìm ra dòng lỗi
+    private <T extends IdEntity, P extends IdEntity> void write(Target<T, P> target, List<Row<T>> batch, ImportJob job) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transaction.executeWithoutResult(status -> {
+                for (Row<T> row : batch) {
+                    persist(target, row);
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+            job.imported(batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Import {} {} batch failed, retrying row by row: {}", target.name, job.getId(), message(e));
+            for (Row<T> row : batch) {
+                row.entity.setId(null);
+                try {
+                    transaction.executeWithoutResult(status -> persist(target, row));
+                    job.imported(1);
+                } catch (RuntimeException rowError) {
+                    job.failed(row.line, message(rowError));
+                }
+            }
+        }
+    }
+
+    private <T extends IdEntity, P extends IdEntity> void persist(Target<T, P> target, Row<T> row) {
+        target.parentSetter.accept(row.entity, entityManager.getReference(target.parentType, row.parentId));
+        entityManager.persist(row.entity);
+    }
+
+    private static String message(Exception e) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    // loại bản ghi import được: entity, entity cha và cột chứa code bản ghi cha trong file
+    @AllArgsConstructor
+    private static class Target<T extends IdEntity, P extends IdEntity> {
+        final String name;
+        final Class<T> type;
+        final Function<T, String> code;
+        final Class<P> parentType;
+        final String parentColumn;
+        final BiConsumer<T, P> parentSetter;
+    }
+
+    @AllArgsConstructor
+    private static class Row<T> {
+        final long line;
+        final T entity;
+        final Long parentId;
+    }
+}
@@ -8,18 +8,15 @@ import com.stc.project.model.Project;
 import com.stc.project.repository.ApartmentRepository;
 import com.stc.project.repository.BuildingRepository;
 import com.stc.project.repository.ProjectRepository;
-import com.stc.project.utils.SecurityUtil;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -67,21 +64,13 @@ public class ProjectService extends CrudService<Project, Long> {
 
             boolean codeChanged = !oldCode.equals(newCode);
 
+            // đổi tiền tố code của tòa nhà và căn hộ thuộc dự án bằng UPDATE hàng loạt, cùng transaction với lần update này
             if (codeChanged) {
-                List<Building> buildings = buildingRepository.findByProject_Id(newProject.getId());
-                for (Building building : buildings) {
-                    String buildingCode = building.getCode();
-                    if (buildingCode != null && buildingCode.contains(oldCode)) {
-                        building.setCode(buildingCode.replaceFirst(Pattern.quote(oldCode), newCode));
-                    }
-
-                    List<Apartment> apartments = apartmentRepository.findByBuilding_Id(building.getId());
-                    for (Apartment apartment : apartments) {
-                        String aptCode = apartment.getCode();
-                        if (aptCode != null && aptCode.contains(oldCode)) {
-                            apartment.setCode(aptCode.replaceFirst(Pattern.quote(oldCode), newCode));
-                        }
-                    }
+                if (renameChildCodes(buildingRepository, "project", newProject.getId(), oldCode, newCode) > 0) {
+                    countCache.invalidate(Building.class);
+                }
+                if (renameChildCodes(apartmentRepository, "building.project", newProject.getId(), oldCode, newCode) > 0) {
+                    countCache.invalidate(Apartment.class);
                 }
             }
         } catch (Exception e) {
@@ -91,62 +80,27 @@ public class ProjectService extends CrudService<Project, Long> {
 
 
 
-    // khi deactive dự án đồng thời cx phải deactive tòa nhà thuộc nó và apt thuộc tòa nhà đó
+    // khi deactive dự án đồng thời cx phải deactive tòa nhà đang ACTIVE thuộc nó và apt đang ACTIVE thuộc các tòa nhà đó.
+    // Căn hộ cập nhật trước vì điều kiện lọc theo trạng thái tòa nhà trước khi tòa nhà bị đổi trạng thái
     @Override
     public void deactivate(Long id) {
         try {
             super.deactivate(id);
-            List<Building> buildings = buildingRepository.findByProject_Id(id);
-            for (Building building : buildings) {
-                if (building.getActive() == Constants.EntityStatus.ACTIVE ) {
-                    building.setActive(Constants.EntityStatus.DEACTIVATED);
-                    building.setDeactivatedAt(LocalDateTime.now());
-                    building.setUpdatedBy(SecurityUtil.getCurrentUserLogin());
-
-                    List<Apartment> apartments = apartmentRepository.findByBuilding_Id(building.getId());
-                    for (Apartment apartment : apartments) {
-                        if (apartment.getActive() == Constants.EntityStatus.ACTIVE) {
-                            apartment.setActive(Constants.EntityStatus.DEACTIVATED);
-                            apartment.setDeactivatedAt(LocalDateTime.now());
-                            apartment.setUpdatedBy(SecurityUtil.getCurrentUserLogin());
-                            apartmentRepository.save(apartment);
-                        }
-                    }
-                    buildingRepository.save(building);
-                }
-            }
+            List<Integer> active = List.of(Constants.EntityStatus.ACTIVE);
+            cascade(active, active, active, deactivateChanges(), List.of(id));
         } catch (Exception e) {
             throw new RuntimeException("Error while deactivating project and its related entities: " + e.getMessage(), e);
         }
     }
 
 
-    // khi Xóa mềm dự án đồng thời cx phải xóa mềm toàn bộ tòa nhà thuộc nó và apt thuộc tòa nhà đó
+    // khi Xóa mềm dự án đồng thời cx phải xóa mềm toàn bộ tòa nhà thuộc nó và apt thuộc tòa nhà đó (những bản ghi chưa nằm trong thùng rác)
     @Override
     public void moveToTrash(Long id) {
         try {
             super.moveToTrash(id);
-            List<Building> buildings = buildingRepository.findByProject_Id(id);
-            for (Building building : buildings) {
-                if (building.getActive() != Constants.EntityStatus.IN_ACTIVE) {
-                    building.setActive(Constants.EntityStatus.IN_ACTIVE);
-                    building.setDeletedAt(LocalDateTime.now());
-                    building.setDeactivatedAt(null);
-                    building.setUpdatedBy(SecurityUtil.getCurrentUserLogin());
-
-                    List<Apartment> apartments = apartmentRepository.findByBuilding_Id(building.getId());
-                    for (Apartment apartment : apartments) {
-                        if (apartment.getActive() != Constants.EntityStatus.IN_ACTIVE) {
-                            apartment.setActive(Constants.EntityStatus.IN_ACTIVE);
-                            apartment.setDeletedAt(LocalDateTime.now());
-                            apartment.setDeactivatedAt(null);
-                            apartment.setUpdatedBy(SecurityUtil.getCurrentUserLogin());
-                            apartmentRepository.save(apartment);
-                        }
-                    }
-                    buildingRepository.save(building);
-                }
-            }
+            List<Integer> notInTrash = List.of(Constants.EntityStatus.ACTIVE, Constants.EntityStatus.DEACTIVATED);
+            cascade(notInTrash, notInTrash, notInTrash, trashChanges(), List.of(id));
         } catch (Exception e) {
             throw new RuntimeException("Error while soft-deleting project and related entities: " + e.getMessage(), e);
         }
@@ -154,57 +108,68 @@ public class ProjectService extends CrudService<Project, Long> {
 
     // khi Xóa mềm toàn bộ dự án đang bị vô hiệu hóa đồng thời cx phải xóa mềm toàn bộ tòa nhà thuộc nó và apt thuộc tòa nhà đó đang bị vô hiệu hóa
     @Override
-    public void moveDeactivateToTrashAll() {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long moveDeactivateToTrashAll() {
         try {
-            super.moveDeactivateToTrashAll();
-
-            // Tìm các Project vừa bị xóa mềm
-            List<Project> trashedProjects = projectRepository.findAll().stream()
-                    .filter(p -> p.getActive() == Constants.EntityStatus.DEACTIVATED)
-                    .collect(Collectors.toList());
-
-            for (Project project : trashedProjects) {
-                List<Building> buildings = buildingRepository.findByProject_Id(project.getId());
-
-                for (Building building : buildings) {
-                    if (building.getActive() == Constants.EntityStatus.DEACTIVATED) {
-                        building.setDeletedAt(LocalDateTime.now());
-                        building.setActive(Constants.EntityStatus.IN_ACTIVE);
-                        building.setDeactivatedAt(null);
-                        building.setUpdatedBy(SecurityUtil.getCurrentUserLogin());
-                        buildingRepository.save(building);
-                    }
-
-                    // Xử lý tiếp Apartment thuộc Building
-                    List<Apartment> apartments = apartmentRepository.findByBuilding_Id(building.getId());
-                    for (Apartment apartment : apartments) {
-                        if (apartment.getActive() == Constants.EntityStatus.DEACTIVATED) {
-                            apartment.setActive(Constants.EntityStatus.IN_ACTIVE);
-                            apartment.setDeletedAt(LocalDateTime.now());
-                            apartment.setDeactivatedAt(null);
-                            apartment.setUpdatedBy(SecurityUtil.getCurrentUserLogin());
-                            apartmentRepository.save(apartment);
-                        }
-                    }
-                }
-            }
+            // lấy id trước, sau khi chuyển vào thùng rác không còn phân biệt được dự án nào vừa bị xóa mềm
+            List<Long> projectIds = projectRepository.findIdsByActive(Constants.EntityStatus.DEACTIVATED);
+            long count = super.moveDeactivateToTrashAll();
+
+            Map<String, Object> changes = trashChanges();
+            List<Integer> deactivated = List.of(Constants.EntityStatus.DEACTIVATED);
+            // căn hộ xử lý với mọi tòa nhà của dự án, không phụ thuộc trạng thái tòa nhà
+            cascadeInChunks(projectIds, ids -> cascade(deactivated, null, deactivated, changes, ids));
+            return count;
         } catch (Exception e) {
             throw new RuntimeException("Error while soft-deleting all deactivated projects and related entities: " + e.getMessage(), e);
         }
     }
 
+    // UPDATE căn hộ (trạng thái apartmentFrom, thuộc tòa nhà có trạng thái buildingOf - null: mọi trạng thái) rồi tới
+    // tòa nhà (trạng thái buildingFrom) của các dự án projectIds. Trả về tổng số bản ghi đã cập nhật
+    private long cascade(List<Integer> apartmentFrom, List<Integer> buildingOf, List<Integer> buildingFrom,
+                         Map<String, Object> changes, List<Long> projectIds) {
+        int apartments = apartmentRepository.bulkUpdateByParent(apartmentFrom, changes, "building.project", buildingOf, projectIds);
+        int buildings = buildingRepository.bulkUpdateByParent(buildingFrom, changes, "project", null, projectIds);
+        if (apartments > 0) {
+            countCache.invalidate(Apartment.class);
+        }
+        if (buildings > 0) {
+            countCache.invalidate(Building.class);
+        }
+        return apartments + buildings;
+    }
+
+
+    // xóa vĩnh viễn dự án thì xóa căn hộ rồi tới tòa nhà thuộc nó trước (khóa ngoại project_id, building_id)
+    @Override
+    protected long beforePurge(List<Long> ids) {
+        int apartments = apartmentRepository.deleteByProjectIds(ids);
+        int buildings = buildingRepository.deleteByProjectIds(ids);
+        if (apartments > 0) {
+            countCache.invalidate(Apartment.class);
+        }
+        if (buildings > 0) {
+            countCache.invalidate(Building.class);
+        }
+        return apartments + buildings;
+    }
+
 
     // hàm này sd trong trang thống kê
+    @Transactional(readOnly = true)
     public long countActiveProjects() {
         return projectRepository.countActiveProjects();
     }
 
     // hàm này sd trong trang thống kê
+    @Transactional(readOnly = true)
     public long countDistinctDistricts() {
         return projectRepository.countDistinctDistricts();
     }
 
     // hàm này sd trong trang thống kê
+    @Transactional(readOnly = true)
     public List<Map<String, Object>> countProjectByDistrict() {
         List<Object[]> rawResults = projectRepository.countProjectByDistrict();
         List<Map<String, Object>> result = new ArrayList<>();
@@ -220,6 +185,7 @@ public class ProjectService extends CrudService<Project, Long> {
     }
 
     // hàm này sd trong trang thống kê
+    @Transactional(readOnly = true)
     public List<Map<String, Object>> countProjectByYear() {
         List<Object[]> results = projectRepository.countProjectByYear();
         List<Map<String, Object>> response = new ArrayList<>();
@@ -65,6 +65,7 @@ public class AuthenticationImpl implements AuthenticationService {
     /**
      * Author: @Vanhle
      * Hàm này để veirify token mỗi request
+     * Không đánh readOnly: bảng invalidated_token phải tra trên primary, replica trễ thì token vừa logout vẫn dùng được
      **/
     public SignedJWT verifyToken(String token) throws JOSEException, ParseException {
         JWSVerifier verifier = new MACVerifier(SIGNED_KEY.getBytes());
@@ -1,6 +1,9 @@
 package com.stc.project.utils;
 
+import com.stc.project.core.CursorPage;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -12,25 +15,28 @@ public final class PaginationUtil {
     }
 
     // Tạo HTTP Headers chứa thông tin về phân trang cho phản hồi HTTP.
-    public static HttpHeaders generatePaginationHttpHeaders(Page page, String baseUrl) {
+    // X-Total-Count và link last chỉ có khi đã đếm tổng số bản ghi (Page), Slice (count=none) chỉ có next/prev/first
+    public static HttpHeaders generatePaginationHttpHeaders(Slice<?> slice, String baseUrl) {
 
         HttpHeaders headers = new HttpHeaders();
-        headers.add("X-Total-Count", Long.toString(page.getTotalElements())); // tổng số bản ghi
         String link = ""; // URL đến các trang liên quan (next, prev, last, first) để frontend có thể chuyển trang
-        if ((page.getNumber() + 1) < page.getTotalPages()) {
-            link = "<" + generateUri(baseUrl, page.getNumber() + 1, page.getSize()) + ">; rel=\"next\",";
+        if (slice.hasNext()) {
+            link = "<" + generateUri(baseUrl, slice.getNumber() + 1, slice.getSize()) + ">; rel=\"next\",";
         }
         // prev link
-        if ((page.getNumber()) > 0) {
-            link += "<" + generateUri(baseUrl, page.getNumber() - 1, page.getSize()) + ">; rel=\"prev\",";
+        if ((slice.getNumber()) > 0) {
+            link += "<" + generateUri(baseUrl, slice.getNumber() - 1, slice.getSize()) + ">; rel=\"prev\",";
         }
-        // last and first link
-        int lastPage = 0;
-        if (page.getTotalPages() > 0) {
-            lastPage = page.getTotalPages() - 1;
+        if (slice instanceof Page<?> page) {
+            headers.add("X-Total-Count", Long.toString(page.getTotalElements())); // tổng số bản ghi
+            // last link
+            int lastPage = 0;
+            if (page.getTotalPages() > 0) {
+                lastPage = page.getTotalPages() - 1;
+            }
+            link += "<" + generateUri(baseUrl, lastPage, page.getSize()) + ">; rel=\"last\",";
         }
-        link += "<" + generateUri(baseUrl, lastPage, page.getSize()) + ">; rel=\"last\",";
-        link += "<" + generateUri(baseUrl, 0, page.getSize()) + ">; rel=\"first\"";
+        link += "<" + generateUri(baseUrl, 0, slice.getSize()) + ">; rel=\"first\"";
         headers.add(HttpHeaders.LINK, link);
         return headers;
     }
@@ -39,4 +45,30 @@ public final class PaginationUtil {
     private static String generateUri(String baseUrl, int page, int size) {
         return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
     }
+
+    // Header Link cho phân trang keyset: next / prev mang cursor, first là cursor rỗng.
+    // Không có X-Total-Count vì keyset không đếm tổng số bản ghi
+    public static HttpHeaders generateCursorHttpHeaders(CursorPage<?> page, String baseUrl, String query, int size, Sort sort) {
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (page.getNextCursor() != null) {
+            link += "<" + generateCursorUri(baseUrl, page.getNextCursor(), query, size, sort) + ">; rel=\"next\",";
+        }
+        if (page.getPreviousCursor() != null) {
+            link += "<" + generateCursorUri(baseUrl, page.getPreviousCursor(), query, size, sort) + ">; rel=\"prev\",";
+        }
+        link += "<" + generateCursorUri(baseUrl, "", query, size, sort) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    private static String generateCursorUri(String baseUrl, String cursor, String query, int size, Sort sort) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(baseUrl);
+        if (query != null) {
+            builder.queryParam("query", query);
+        }
+        builder.queryParam("cursor", cursor).queryParam("size", size);
+        sort.forEach(order -> builder.queryParam("sort", order.getProperty() + "," + order.getDirection().name().toLowerCase()));
+        return builder.encode().toUriString();
+    }
 }
@@ -0,0 +1,20 @@
+-- Bang gia lap sequence cho id cua project / building / apartment (MySQL khong co SEQUENCE).
+-- Chay truoc khi deploy ban dung GenerationType.SEQUENCE, chay lai nhieu lan khong sao:
+-- bang da co dong next_val thi giu nguyen (khong chen them dong thu 2, khong lui next_val).
+-- next_val bat dau sau id lon nhat hien co (+ 1 block 50 id) nen id cu giu nguyen, id moi khong trung.
+-- Ung dung kiem tra cac bang nay luc khoi dong (IdSequenceTableCheck), thieu bang hoac bang rong thi dung lai.
+
+CREATE TABLE IF NOT EXISTS project_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO project_seq (next_val)
+SELECT m.next_val FROM (SELECT COALESCE(MAX(id), 0) + 51 AS next_val FROM project) m
+WHERE NOT EXISTS (SELECT 1 FROM project_seq);
+
+CREATE TABLE IF NOT EXISTS building_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO building_seq (next_val)
+SELECT m.next_val FROM (SELECT COALESCE(MAX(id), 0) + 51 AS next_val FROM building) m
+WHERE NOT EXISTS (SELECT 1 FROM building_seq);
+
+CREATE TABLE IF NOT EXISTS apartment_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO apartment_seq (next_val)
+SELECT m.next_val FROM (SELECT COALESCE(MAX(id), 0) + 51 AS next_val FROM apartment) m
+WHERE NOT EXISTS (SELECT 1 FROM apartment_seq);
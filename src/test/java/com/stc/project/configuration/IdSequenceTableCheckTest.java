@@ -0,0 +1,77 @@
+package com.stc.project.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Script tạo bảng _seq chạy lại nhiều lần vẫn chỉ có 1 dòng next_val; bảng thiếu hoặc rỗng làm ứng dụng dừng lúc khởi động.
+// H2 có SEQUENCE thật nên chạy script trên bản sao tên bảng (<bảng>_seq_check)
+@DataJpaTest
+@Import(IdSequenceTableCheck.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdSequenceTableCheckTest {
+
+    private static final List<String> TABLES = List.of("project_seq_check", "building_seq_check", "apartment_seq_check");
+
+    @Autowired
+    private IdSequenceTableCheck sequenceCheck;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        TABLES.forEach(table -> jdbcTemplate.execute("DROP TABLE IF EXISTS " + table));
+    }
+
+    @Test
+    void databaseWithRealSequencesHasNothingToCheck() {
+        assertTrue(sequenceCheck.sequenceTables().isEmpty());
+    }
+
+    @Test
+    void scriptIsIdempotent() throws IOException {
+        runScript();
+        runScript();
+
+        for (String table : TABLES) {
+            assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class));
+        }
+        assertDoesNotThrow(() -> sequenceCheck.check(TABLES));
+    }
+
+    @Test
+    void missingOrEmptyTableFailsStartup() throws IOException {
+        runScript();
+        jdbcTemplate.execute("DELETE FROM apartment_seq_check");
+        assertThrows(IllegalStateException.class, () -> sequenceCheck.check(TABLES));
+
+        jdbcTemplate.execute("DROP TABLE apartment_seq_check");
+        assertThrows(IllegalStateException.class, () -> sequenceCheck.check(TABLES));
+    }
+
+    private void runScript() throws IOException {
+        String script = new ClassPathResource("db/pooled-id-sequences.sql").getContentAsString(StandardCharsets.UTF_8)
+                .replace("_seq", "_seq_check");
+        for (String statement : script.replaceAll("(?m)^--.*$", "").split(";")) {
+            if (!statement.isBlank()) {
+                jdbcTemplate.execute(statement);
+            }
+        }
+    }
+}
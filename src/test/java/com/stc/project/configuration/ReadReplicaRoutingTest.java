@@ -0,0 +1,109 @@
+package com.stc.project.configuration;
+
+import com.stc.project.model.Apartment;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.service.ApartmentService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// 2 database H2 độc lập đóng vai primary và replica, replica không tự đồng bộ dữ liệu:
+// đọc được bản ghi hay không cho biết transaction đã đi tới database nào
+@SpringBootTest(properties = {
+        "datasource.replica.url=jdbc:h2:mem:stc_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "datasource.replica.username=sa",
+        "datasource.replica.password=",
+        "datasource.replica.lag-query=SELECT seconds FROM replica_lag",
+        "datasource.replica.lag-column=seconds",
+        "datasource.replica.lag-check-interval-ms=3600000"
+})
+class ReadReplicaRoutingTest {
+
+    @Autowired
+    private ApartmentService apartmentService;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private JdbcTemplate replica;
+
+    private Apartment apartment;
+
+    @BeforeEach
+    void setUp() {
+        // replica có cùng schema với primary nhưng không có dữ liệu
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("DROP ALL OBJECTS");
+        for (String statement : new JdbcTemplate(primaryDataSource).queryForList("SCRIPT NODATA", String.class)) {
+            replica.execute(statement);
+        }
+        replica.execute("CREATE TABLE replica_lag (seconds INT)");
+        replica.execute("INSERT INTO replica_lag VALUES (0)");
+        lagMonitor.check();
+
+        apartment = new Apartment();
+        apartment.setCode("A1");
+        apartment.setName("Apartment 1");
+        apartmentRepository.save(apartment);
+    }
+
+    @AfterEach
+    void tearDown() {
+        apartmentRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplica() {
+        assertEquals("jdbc:h2:mem:stc_replica", connectionUrl(true));
+        assertEquals("jdbc:h2:mem:stc", connectionUrl(false));
+        // bản ghi chỉ có trên primary
+        assertThrows(EntityNotFoundException.class, () -> apartmentService.get(apartment.getId()));
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        replica.update("UPDATE replica_lag SET seconds = 60");
+        lagMonitor.check();
+
+        assertEquals("jdbc:h2:mem:stc", connectionUrl(true));
+        assertEquals("A1", apartmentService.get(apartment.getId()).getCode());
+    }
+
+    private String connectionUrl(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> entityManager.unwrap(Session.class)
+                .doReturningWork(connection -> connection.getMetaData().getURL()));
+    }
+}
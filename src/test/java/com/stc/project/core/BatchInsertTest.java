@@ -0,0 +1,58 @@
+package com.stc.project.core;
+
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Id kiểu SEQUENCE pooled: INSERT được gom theo lô hibernate.jdbc.batch_size thay vì 1 round trip / bản ghi
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BatchInsertTest {
+
+    private static final int APARTMENTS = 120;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void insertsAreBatched() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Project project = projectRepository.save(TestData.project("P1"));
+        Building building = buildingRepository.save(TestData.building(project, "P1-B1"));
+        apartmentRepository.saveAll(TestData.apartments(building, APARTMENTS));
+        entityManager.flush();
+
+        assertEquals(APARTMENTS + 2, statistics.getEntityInsertCount());
+        // 3 lô căn hộ + 1 project + 1 building, cộng các lần lấy block id từ sequence.
+        // Đo trên H2: 9 câu prepare cho 122 INSERT (id IDENTITY trước đây: 122 câu, mỗi bản ghi 1 round trip)
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= 12, "Expected batched inserts but prepared " + statements + " statements");
+    }
+}
@@ -0,0 +1,102 @@
+package com.stc.project.core;
+
+import com.stc.project.constants.Constants;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.SqlCaptureInspector;
+import com.stc.project.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Cascade trạng thái dự án -> tòa nhà -> căn hộ bằng 2 câu UPDATE, không phụ thuộc số tòa nhà / căn hộ
+@DataJpaTest
+class BulkCascadeTest {
+
+    private static final List<Integer> ACTIVE = List.of(Constants.EntityStatus.ACTIVE);
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Project project;
+
+    private Project otherProject;
+
+    @BeforeEach
+    void setUp() {
+        project = projectRepository.save(TestData.project("P1"));
+        otherProject = projectRepository.save(TestData.project("P2"));
+        building(project, "P1-B1", Constants.EntityStatus.ACTIVE);
+        building(project, "P1-B2", Constants.EntityStatus.ACTIVE);
+        // tòa nhà đã bị vô hiệu hóa: căn hộ ACTIVE còn sót bên trong không bị cascade
+        building(project, "P1-B3", Constants.EntityStatus.DEACTIVATED);
+        building(otherProject, "P2-B1", Constants.EntityStatus.ACTIVE);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void deactivatesActiveChildrenOfProject() {
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("active", Constants.EntityStatus.DEACTIVATED);
+        changes.put("deactivatedAt", LocalDateTime.now());
+
+        SqlCaptureInspector.clear();
+        int apartments = apartmentRepository.bulkUpdateByParent(ACTIVE, changes, "building.project", ACTIVE, List.of(project.getId()));
+        int buildings = buildingRepository.bulkUpdateByParent(ACTIVE, changes, "project", null, List.of(project.getId()));
+
+        assertEquals(2, SqlCaptureInspector.statements().size());
+        assertEquals(8, apartments);
+        assertEquals(2, buildings);
+        for (Apartment apartment : apartmentRepository.findAll()) {
+            Building building = apartment.getBuilding();
+            boolean cascaded = building.getProject().getId().equals(project.getId()) && !building.getCode().equals("P1-B3");
+            assertEquals(cascaded ? Constants.EntityStatus.DEACTIVATED : Constants.EntityStatus.ACTIVE, apartment.getActive());
+        }
+        assertEquals(Constants.EntityStatus.ACTIVE, buildingRepository.findByProject_Id(otherProject.getId()).get(0).getActive());
+    }
+
+    @Test
+    void trashesApartmentsOfBuildings() {
+        List<Long> buildingIds = buildingRepository.findByProject_Id(project.getId()).stream().map(Building::getId).toList();
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("active", Constants.EntityStatus.IN_ACTIVE);
+        changes.put("deletedAt", LocalDateTime.now());
+        changes.put("deactivatedAt", null);
+
+        int apartments = apartmentRepository.bulkUpdateByParent(
+                List.of(Constants.EntityStatus.ACTIVE, Constants.EntityStatus.DEACTIVATED), changes, "building", null, buildingIds);
+
+        assertEquals(12, apartments);
+        assertEquals(12, apartmentRepository.findAll().stream()
+                .filter(a -> a.getActive() == Constants.EntityStatus.IN_ACTIVE).count());
+    }
+
+    // tòa nhà kèm 4 căn hộ ACTIVE
+    private void building(Project project, String code, int active) {
+        Building building = buildingRepository.save(TestData.building(project, code, active));
+        apartmentRepository.saveAll(TestData.apartments(building, 4));
+    }
+}
@@ -0,0 +1,92 @@
+package com.stc.project.core;
+
+import com.stc.project.constants.Constants;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.SqlCaptureInspector;
+import com.stc.project.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Khôi phục hàng loạt bằng UPDATE theo từng lô id (keyset), bản ghi có cha chưa ACTIVE không được khôi phục
+@DataJpaTest
+class BulkStatusUpdateTest {
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Building activeBuilding;
+
+    @BeforeEach
+    void setUp() {
+        Project project = projectRepository.save(TestData.project("P1"));
+        activeBuilding = buildingRepository.save(TestData.building(project, "P1-B1"));
+        Building deactivatedBuilding = buildingRepository.save(
+                TestData.building(project, "P1-B2", Constants.EntityStatus.DEACTIVATED));
+        for (Building building : new Building[]{activeBuilding, deactivatedBuilding}) {
+            for (int i = 0; i < 5; i++) {
+                Apartment apartment = TestData.apartment(building, building.getCode() + "-A" + i, Constants.EntityStatus.IN_ACTIVE);
+                apartment.setDeletedAt(LocalDateTime.now());
+                apartmentRepository.save(apartment);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void restoresOnlyRowsWhoseParentIsActive() {
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("active", Constants.EntityStatus.ACTIVE);
+        changes.put("deletedAt", null);
+
+        SqlCaptureInspector.clear();
+        int updated = 0;
+        int chunks = 0;
+        // chia nhỏ 3 bản ghi 1 lần theo keyset: id từ sequence pooled có thể bị nhảy
+        // (context test khác dùng chung DB giữ 1 khối id) nhưng số lô vẫn chỉ phụ thuộc số bản ghi
+        long lastId = 0;
+        Long chunkEnd;
+        while ((chunkEnd = apartmentRepository.findChunkEndIdByActive(Constants.EntityStatus.IN_ACTIVE, lastId, 3)) != null) {
+            updated += apartmentRepository.bulkUpdateByActive(Constants.EntityStatus.IN_ACTIVE, changes, "building",
+                    lastId + 1, chunkEnd);
+            lastId = chunkEnd;
+            chunks++;
+        }
+
+        assertEquals(5, updated);
+        assertEquals(4, chunks);
+        // 4 lần tìm cận trên + 1 lần dò thấy hết, 4 câu UPDATE
+        assertEquals(9, SqlCaptureInspector.statements().size());
+        for (Apartment apartment : apartmentRepository.findAll()) {
+            boolean restored = apartment.getBuilding().getId().equals(activeBuilding.getId());
+            assertEquals(restored ? Constants.EntityStatus.ACTIVE : Constants.EntityStatus.IN_ACTIVE, apartment.getActive());
+            if (restored) {
+                assertNull(apartment.getDeletedAt());
+            }
+        }
+    }
+}
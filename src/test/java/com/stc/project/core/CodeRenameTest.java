@@ -0,0 +1,89 @@
+package com.stc.project.core;
+
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.SqlCaptureInspector;
+import com.stc.project.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Đổi code dự án: chỉ bản ghi con có code bắt đầu bằng code cũ được đổi tiền tố, % _ trong code không phải wildcard
+@DataJpaTest
+class CodeRenameTest {
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        project = projectRepository.save(TestData.project("P_1"));
+        Building building = buildingRepository.save(TestData.building(project, "P_1-B1"));
+        buildingRepository.save(TestData.building(project, "PX1-B2"));
+        buildingRepository.save(TestData.building(project, "X-P_1-B3"));
+        apartmentRepository.saveAll(TestData.apartments(building, 3));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void replacesOnlyMatchingPrefix() {
+        List<Long> buildingIds = buildingRepository.findIdsByParentAndCodePrefix("project", project.getId(), "P_1");
+        assertEquals(1, buildingIds.size());
+        assertEquals(1, buildingRepository.replaceCodePrefix(buildingIds, "P_1", "NEW"));
+
+        List<Long> apartmentIds = apartmentRepository.findIdsByParentAndCodePrefix("building.project", project.getId(), "P_1");
+        // mỗi lần 2 id
+        int renamed = apartmentRepository.replaceCodePrefix(apartmentIds.subList(0, 2), "P_1", "NEW")
+                + apartmentRepository.replaceCodePrefix(apartmentIds.subList(2, 3), "P_1", "NEW");
+        assertEquals(3, renamed);
+        entityManager.clear();
+
+        assertEquals(List.of("NEW-B1", "PX1-B2", "X-P_1-B3"), codes(buildingRepository.findAll().stream().map(Building::getCode)));
+        assertEquals(List.of("NEW-B1-A0", "NEW-B1-A1", "NEW-B1-A2"), codes(apartmentRepository.findAll().stream().map(Apartment::getCode)));
+    }
+
+    @Test
+    void prefixMatchIsCaseSensitive() {
+        // MySQL *_ci coi "P_1-B1" = "p_1-b1": câu SQL phải lọc thêm bằng BINARY để không đổi nhầm code viết thường
+        Apartment lowerCase = apartmentRepository.saveAndFlush(TestData.apartment(buildingRepository.findAll().get(0), "p_1-b1-A9"));
+
+        SqlCaptureInspector.clear();
+        List<Long> ids = apartmentRepository.findIdsByParentAndCodePrefix("building.project", project.getId(), "P_1-B1");
+        assertEquals(3, ids.size());
+        assertEquals(0, apartmentRepository.replaceCodePrefix(List.of(lowerCase.getId()), "P_1-B1", "P_1-B2"));
+        assertEquals(3, apartmentRepository.replaceCodePrefix(ids, "P_1-B1", "P_1-B2"));
+        assertTrue(SqlCaptureInspector.statements().stream().allMatch(sql -> sql.toLowerCase().contains("binary(")));
+        entityManager.clear();
+
+        assertEquals(List.of("P_1-B2-A0", "P_1-B2-A1", "P_1-B2-A2", "p_1-b1-A9"),
+                codes(apartmentRepository.findAll().stream().map(Apartment::getCode)));
+    }
+
+    private List<String> codes(java.util.stream.Stream<String> codes) {
+        return codes.sorted().collect(Collectors.toList());
+    }
+}
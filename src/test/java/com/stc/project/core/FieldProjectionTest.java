@@ -0,0 +1,134 @@
+package com.stc.project.core;
+
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.rsql.RsqlQueryCache;
+import com.stc.project.rsql.RsqlSelector;
+import com.stc.project.rsql.RsqlSelectorRegistry;
+import com.stc.project.support.SqlCaptureInspector;
+import com.stc.project.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// fields=... và /aggregate chỉ SELECT các cột được chọn, kết quả là Map, không có entity nào trong persistence context
+@DataJpaTest
+@Import({RsqlSelectorRegistry.class, RsqlQueryCache.class})
+class FieldProjectionTest {
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private RsqlSelectorRegistry selectorRegistry;
+
+    @Autowired
+    private RsqlQueryCache queryCache;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Project project = projectRepository.save(TestData.project("P1"));
+        Building building = buildingRepository.save(TestData.building(project, "P1-B1"));
+        for (int i = 0; i < 5; i++) {
+            Apartment apartment = TestData.apartment(building, "P1-B1-A" + i);
+            apartment.setDescription("long description " + i);
+            apartment.setPrice(1000f * (i + 1));
+            apartmentRepository.save(apartment);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void selectsOnlyRequestedColumns() {
+        List<RsqlSelector> fields = List.of(
+                selectorRegistry.resolve(Apartment.class, "code"),
+                selectorRegistry.resolve(Apartment.class, "building.code"));
+
+        SqlCaptureInspector.clear();
+        Slice<Map<String, Object>> slice = apartmentRepository.findFields(
+                queryCache.compile(Apartment.class, "code=in=(P1-B1-A1,P1-B1-A2,P1-B1-A3)").getSpecification(),
+                fields, PageRequest.of(0, 2, Sort.by("code")));
+
+        assertEquals(List.of(
+                Map.of("code", "P1-B1-A1", "building.code", "P1-B1"),
+                Map.of("code", "P1-B1-A2", "building.code", "P1-B1")), slice.getContent());
+        assertTrue(slice.hasNext());
+        String select = SqlCaptureInspector.statements().get(0);
+        assertFalse(select.contains("description"), select);
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void selectedAndSortedParentColumnsReuseFilterJoin() {
+        SqlCaptureInspector.clear();
+        Slice<Map<String, Object>> slice = apartmentRepository.findFields(
+                queryCache.compile(Apartment.class, "building.code==P1-B1").getSpecification(),
+                List.of(selectorRegistry.resolve(Apartment.class, "code"),
+                        selectorRegistry.resolve(Apartment.class, "building.code")),
+                PageRequest.of(0, 2, Sort.by("building.code", "code")));
+
+        assertEquals(2, slice.getNumberOfElements());
+        String select = SqlCaptureInspector.statements().get(0).toLowerCase();
+        assertEquals(1, select.split(" join ").length - 1, select);
+    }
+
+    @Test
+    void aggregatesInSingleGroupByQuery() {
+        SqlCaptureInspector.clear();
+        List<Map<String, Object>> rows = apartmentRepository.aggregate(
+                queryCache.compile(Apartment.class, "code!=P1-B1-A0").getSpecification(),
+                List.of(selectorRegistry.resolve(Apartment.class, "building.code")),
+                List.of(new AggregateMetric(AggregateMetric.Function.COUNT, null, "count"),
+                        new AggregateMetric(AggregateMetric.Function.SUM,
+                                selectorRegistry.resolve(Apartment.class, "price"), "sum(price)")), 100);
+
+        assertEquals(1, rows.size());
+        assertEquals("P1-B1", rows.get(0).get("building.code"));
+        assertEquals(4L, rows.get(0).get("count"));
+        assertEquals(14000.0, ((Number) rows.get(0).get("sum(price)")).doubleValue());
+        assertEquals(1, SqlCaptureInspector.statements().size());
+        assertTrue(SqlCaptureInspector.statements().get(0).contains("group by"));
+    }
+
+    @Test
+    void aggregateReusesFilterJoinAndStopsAtLimit() {
+        SqlCaptureInspector.clear();
+        List<Map<String, Object>> rows = apartmentRepository.aggregate(
+                queryCache.compile(Apartment.class, "building.code==P1-B1").getSpecification(),
+                List.of(selectorRegistry.resolve(Apartment.class, "building.code"),
+                        selectorRegistry.resolve(Apartment.class, "code")),
+                List.of(new AggregateMetric(AggregateMetric.Function.COUNT, null, "count")), 3);
+
+        assertEquals(3, rows.size());
+        String select = SqlCaptureInspector.statements().get(0).toLowerCase();
+        assertEquals(1, select.split(" join ").length - 1, select);
+    }
+}
@@ -0,0 +1,89 @@
+package com.stc.project.core;
+
+import com.stc.project.exception.AppException;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.rsql.RsqlSelectorRegistry;
+import com.stc.project.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Đi hết các trang bằng cursor đã ký: mỗi dòng xuất hiện đúng 1 lần, cursor bị sửa hoặc khác scope thì bị từ chối
+@DataJpaTest
+@Import({RsqlSelectorRegistry.class, KeysetCursorCodec.class})
+class KeysetCursorCodecTest {
+
+    private static final Sort SORT = Sort.by("name");
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private KeysetCursorCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        Project project = projectRepository.save(TestData.project("P1"));
+        Building building = buildingRepository.save(TestData.building(project, "P1-B1"));
+
+        // tên trùng nhau theo từng cặp để kiểm tra id làm tie-breaker
+        for (int i = 0; i < 25; i++) {
+            Apartment apartment = TestData.apartment(building, "P1-B1-A" + i);
+            apartment.setName("Apartment " + (i / 2));
+            apartmentRepository.save(apartment);
+        }
+    }
+
+    @Test
+    void scrollsThroughEveryRowExactlyOnce() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = "";
+        do {
+            KeysetScrollPosition position = codec.decode(Apartment.class, "scope", cursor, SORT);
+            Window<Apartment> window = apartmentRepository.findBy((root, q, cb) -> null,
+                    q -> q.sortBy(SORT).limit(7).scroll(position));
+            window.forEach(apartment -> seen.add(apartment.getId()));
+            cursor = window.hasNext()
+                    ? codec.encode(Apartment.class, "scope",
+                    ScrollPosition.forward(((KeysetScrollPosition) window.positionAt(window.size() - 1)).getKeys()))
+                    : null;
+        } while (cursor != null);
+
+        assertEquals(25, seen.size());
+        assertEquals(25, seen.stream().distinct().count());
+    }
+
+    @Test
+    void rejectsTamperedOrForeignCursor() {
+        String cursor = codec.encode(Apartment.class, "scope",
+                ScrollPosition.forward(Map.of("name", "Apartment 3", "id", 7L)));
+
+        assertThrows(AppException.class, () -> codec.decode(Apartment.class, "other-scope", cursor, SORT));
+        assertThrows(AppException.class, () -> codec.decode(Apartment.class, "scope", "x" + cursor, SORT));
+        assertThrows(AppException.class, () -> codec.decode(Apartment.class, "scope", cursor, Sort.by("code")));
+    }
+}
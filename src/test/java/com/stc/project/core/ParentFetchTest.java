@@ -0,0 +1,112 @@
+package com.stc.project.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stc.project.constants.Constants;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Trang kết quả serialize kèm tên/mã bản ghi cha với số câu SQL cố định, không phụ thuộc kích thước trang
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ParentFetchTest {
+
+    private static final int BUILDINGS = 6;
+
+    private static final int APARTMENTS_PER_BUILDING = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (int p = 1; p <= BUILDINGS; p++) {
+            Project project = projectRepository.save(TestData.project("P" + p));
+            Building building = buildingRepository.save(TestData.building(project, "P" + p + "-B1"));
+            apartmentRepository.saveAll(TestData.apartments(building, APARTMENTS_PER_BUILDING));
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void pageCostsSelectPlusCountForAnySize() throws Exception {
+        for (int size : new int[]{2, 10, 25}) {
+            assertEquals(2, statementsFor(() -> {
+                Page<Apartment> page = apartmentRepository.findAll(active(), PageRequest.of(0, size, Sort.by("code")));
+                assertEquals(size, page.getNumberOfElements());
+                return page.getContent();
+            }), "page size " + size);
+        }
+        assertEquals(2, statementsFor(() -> buildingRepository.findAll(active(), PageRequest.of(0, 4)).getContent()));
+    }
+
+    @Test
+    void sliceListAndScrollCostOneSelect() throws Exception {
+        assertEquals(1, statementsFor(() -> {
+            Slice<Apartment> slice = apartmentRepository.findSlice(active(), PageRequest.of(1, 20, Sort.by("code")));
+            return slice.getContent();
+        }));
+        assertEquals(1, statementsFor(() -> apartmentRepository.findAll()));
+        assertEquals(1, statementsFor(() -> {
+            Window<Apartment> window = apartmentRepository.findBy(active(),
+                    q -> q.sortBy(Sort.by("code")).limit(15).scroll(ScrollPosition.keyset()));
+            return window.getContent();
+        }));
+    }
+
+    // số câu SQL để đọc + serialize ra JSON (gọi các getter buildingName, projectCode...) với persistence context rỗng
+    private long statementsFor(Query query) throws Exception {
+        entityManager.clear();
+        statistics.clear();
+        List<?> rows = query.run();
+        objectMapper.writeValueAsString(rows);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static <T> Specification<T> active() {
+        return (root, query, builder) -> builder.equal(root.get("active"), Constants.EntityStatus.ACTIVE);
+    }
+
+    private interface Query {
+        List<?> run();
+    }
+}
@@ -0,0 +1,74 @@
+package com.stc.project.core;
+
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// count=none không đếm nhưng vẫn biết còn trang sau, count=estimate bị xóa cache khi entity được ghi
+@DataJpaTest
+@Import(SearchCountCache.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SearchCountCacheTest {
+
+    private static final Specification<Project> ALL = (root, query, cb) -> null;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private SearchCountCache countCache;
+
+    @AfterEach
+    void tearDown() {
+        projectRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void sliceProbesOneExtraRowInsteadOfCounting() {
+        for (int i = 0; i < 5; i++) {
+            projectRepository.save(TestData.project("P" + i));
+        }
+        Slice<Project> first = projectRepository.findSlice(ALL, PageRequest.of(0, 2, Sort.by("code")));
+        Slice<Project> last = projectRepository.findSlice(ALL, PageRequest.of(2, 2, Sort.by("code")));
+
+        assertEquals(2, first.getNumberOfElements());
+        assertTrue(first.hasNext());
+        assertEquals(1, last.getNumberOfElements());
+        assertFalse(last.hasNext());
+    }
+
+    @Test
+    void cachedCountIsDroppedWhenEntityIsWritten() {
+        projectRepository.save(TestData.project("P1"));
+        assertEquals(1, countCache.get(Project.class, "|", () -> projectRepository.count(ALL)));
+
+        projectRepository.save(TestData.project("P2"));
+        assertEquals(2, countCache.get(Project.class, "|", () -> projectRepository.count(ALL)));
+    }
+
+    @Test
+    void writeOnlyInvalidatesItsOwnEntity() {
+        assertEquals(7, countCache.get(Building.class, "|", () -> 7L));
+
+        projectRepository.save(TestData.project("P1"));
+        assertEquals(7, countCache.get(Building.class, "|", () -> 8L));
+        countCache.invalidate(Building.class);
+        assertEquals(8, countCache.get(Building.class, "|", () -> 8L));
+    }
+}
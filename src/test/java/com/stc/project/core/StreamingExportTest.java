@@ -0,0 +1,103 @@
+package com.stc.project.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stc.project.constants.Constants;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.SqlCaptureInspector;
+import com.stc.project.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Export: đọc bằng 1 câu SELECT (bản ghi cha được fetch join), persistence context được xóa sau mỗi lô fetchSize dòng
+@DataJpaTest
+class StreamingExportTest {
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Project project = projectRepository.save(TestData.project("P1"));
+        for (int b = 1; b <= 2; b++) {
+            Building building = buildingRepository.save(TestData.building(project, "P1-B" + b));
+            for (int i = 1; i <= 3; i++) {
+                Apartment apartment = TestData.apartment(building, building.getCode() + "-A" + i,
+                        i == 3 ? Constants.EntityStatus.DEACTIVATED : Constants.EntityStatus.ACTIVE);
+                if (i == 1) {
+                    apartment.setName("Apartment \"corner\", " + b);
+                }
+                apartmentRepository.save(apartment);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void streamsDetachedRowsWithParentsInOneQuery() {
+        Specification<Apartment> active = (root, query, builder) ->
+                builder.equal(root.get("active"), Constants.EntityStatus.ACTIVE);
+        List<String> buildingCodes = new ArrayList<>();
+        List<Apartment> seen = new ArrayList<>();
+
+        SqlCaptureInspector.clear();
+        long rows = apartmentRepository.forEach(active, Sort.by("code"), 2, apartment -> {
+            buildingCodes.add(apartment.getBuildingCode());
+            seen.add(apartment);
+        });
+
+        assertEquals(4, rows);
+        assertEquals(List.of("P1-B1", "P1-B1", "P1-B2", "P1-B2"), buildingCodes);
+        assertEquals(1, SqlCaptureInspector.statements().size());
+        seen.forEach(apartment -> assertFalse(entityManager.contains(apartment)));
+        // bản ghi cha lấy bằng fetch join cũng không còn trong persistence context
+        seen.forEach(apartment -> assertFalse(entityManager.contains(apartment.getBuilding())));
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void writesCsvWithHeaderAndQuotedValues() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportWriter writer = ExportWriter.open("csv", objectMapper, out);
+
+        apartmentRepository.forEach((root, query, builder) -> builder.equal(root.get("code"), "P1-B2-A1"),
+                Sort.by("id"), 100, writer::write);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        List<String> header = List.of(lines[0].split(","));
+        assertTrue(header.containsAll(List.of("id", "code", "name", "buildingCode")));
+        assertTrue(lines[1].contains(",P1-B2-A1,") || lines[1].startsWith("P1-B2-A1,"));
+        assertTrue(lines[1].contains("\"Apartment \"\"corner\"\", 2\""));
+    }
+}
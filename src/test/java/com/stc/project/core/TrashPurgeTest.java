@@ -0,0 +1,90 @@
+package com.stc.project.core;
+
+import com.stc.project.constants.Constants;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Lấy id thùng rác theo lô (active = 0, deleted_at < mốc) và xóa con trước cha bằng DELETE theo id
+@DataJpaTest
+class TrashPurgeTest {
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Project expired;
+
+    @BeforeEach
+    void setUp() {
+        expired = trashed("P1", LocalDateTime.now().minusDays(40));
+        trashed("P2", LocalDateTime.now().minusDays(5));
+        trashed("P3", LocalDateTime.now().minusDays(50));
+        projectRepository.save(TestData.project("P4"));
+
+        for (int b = 0; b < 2; b++) {
+            Building building = TestData.building(expired, "P1-B" + b, Constants.EntityStatus.IN_ACTIVE);
+            building.setDeletedAt(expired.getDeletedAt());
+            buildingRepository.save(building);
+            for (int i = 0; i < 3; i++) {
+                apartmentRepository.save(TestData.apartment(building, building.getCode() + "-A" + i, Constants.EntityStatus.IN_ACTIVE));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findsOnlyExpiredTrashInIdOrder() {
+        LocalDateTime before = LocalDateTime.now().minusDays(30);
+
+        assertEquals(List.of("P1", "P3"), codes(projectRepository.findTrashIds(before, 10)));
+        assertEquals(List.of("P1"), codes(projectRepository.findTrashIds(before, 1)));
+        assertEquals(List.of("P1", "P2", "P3"), codes(projectRepository.findTrashIds(null, 10)));
+    }
+
+    @Test
+    void deletesChildrenBeforeParents() {
+        List<Long> ids = List.of(expired.getId());
+
+        assertEquals(6, apartmentRepository.deleteByProjectIds(ids));
+        assertEquals(2, buildingRepository.deleteByProjectIds(ids));
+        projectRepository.deleteAllByIdInBatch(ids);
+
+        assertEquals(0, apartmentRepository.count());
+        assertEquals(0, buildingRepository.count());
+        assertEquals(3, projectRepository.count());
+    }
+
+    // dự án trong thùng rác (active = 0) từ thời điểm deletedAt
+    private Project trashed(String code, LocalDateTime deletedAt) {
+        Project project = TestData.project(code, Constants.EntityStatus.IN_ACTIVE);
+        project.setDeletedAt(deletedAt);
+        return projectRepository.save(project);
+    }
+
+    private List<String> codes(List<Long> ids) {
+        return ids.stream().map(id -> projectRepository.findById(id).orElseThrow().getCode()).toList();
+    }
+}
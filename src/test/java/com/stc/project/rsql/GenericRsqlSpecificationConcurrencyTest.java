@@ -0,0 +1,92 @@
+package com.stc.project.rsql;
+
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Specification đã biên dịch được dùng chung giữa nhiều thread, mỗi lần gọi đều phải cho cùng kết quả
+@DataJpaTest
+@Import({RsqlSelectorRegistry.class, RsqlQueryCache.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GenericRsqlSpecificationConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 50;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private RsqlQueryCache queryCache;
+
+    @BeforeEach
+    void setUp() {
+        Project project = projectRepository.save(TestData.project("P1"));
+        for (String code : List.of("P1-B1", "P1-B2")) {
+            Building building = buildingRepository.save(TestData.building(project, code));
+            apartmentRepository.saveAll(TestData.apartments(building, 15));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        apartmentRepository.deleteAllInBatch();
+        buildingRepository.deleteAllInBatch();
+        projectRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void sharedSpecificationGivesSameResultOnEveryThread() throws Exception {
+        Specification<Apartment> spec = queryCache
+                .compile(Apartment.class, "building.code==P1-B1;active==1")
+                .getSpecification();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Long>> tasks = new ArrayList<>();
+            for (int i = 0; i < THREADS * ITERATIONS; i++) {
+                // page size < tổng số bản ghi nên Spring Data chạy thêm query count với cùng spec
+                tasks.add(() -> {
+                    Page<Apartment> page = apartmentRepository.findAll(spec, PageRequest.of(0, 10));
+                    assertEquals(10, page.getNumberOfElements());
+                    return page.getTotalElements();
+                });
+            }
+            for (Future<Long> result : executor.invokeAll(tasks)) {
+                assertEquals(15L, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.stc.project.rsql;
+
+import com.stc.project.exception.AppException;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.SqlCaptureInspector;
+import com.stc.project.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Chạy EXPLAIN cho câu SQL sinh ra từ các mẫu selector hay dùng: so sánh bằng, 'abc*' và so sánh khoảng phải đi qua index,
+// '*abc' thì không nên RsqlQueryGuard chặn với MANAGER. Tham số được inline vào SQL để EXPLAIN thấy giá trị thật
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.criteria.value_handling_mode=inline")
+@Import({RsqlSelectorRegistry.class, RsqlQueryCache.class, RsqlQueryGuard.class})
+class RsqlIndexUsageTest {
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private RsqlQueryCache queryCache;
+
+    @Autowired
+    private RsqlQueryGuard queryGuard;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        Project project = projectRepository.save(TestData.project("P1"));
+        for (int b = 0; b < 5; b++) {
+            Building building = buildingRepository.save(TestData.building(project, "P1-B" + b));
+            List<Apartment> apartments = TestData.apartments(building, 40);
+            for (int i = 0; i < apartments.size(); i++) {
+                apartments.get(i).setPrice(i * 100000f);
+            }
+            apartmentRepository.saveAll(apartments);
+        }
+        apartmentRepository.flush();
+    }
+
+    @Test
+    void equalityUsesIndex() {
+        assertTrue(planOf("code==P1-B1-A7").contains("idx_apartment_code"));
+        assertTrue(planOf("name=='Apartment P1-B2-A3'").contains("idx_apartment_name"));
+    }
+
+    @Test
+    void trailingWildcardUsesIndexRange() {
+        String plan = planOf("code==P1-B3-A1*");
+        assertTrue(plan.contains("idx_apartment_code"), plan);
+    }
+
+    @Test
+    void inListUsesIndex() {
+        String plan = planOf("code=in=(P1-B1-A1,P1-B2-A2)");
+        assertTrue(plan.contains("idx_apartment_code"), plan);
+    }
+
+    @Test
+    void inListDecodesEncodedSpaceLikeEqual() {
+        Specification<Apartment> spec = queryCache.compile(Apartment.class, "name=in=(Apartment%20P1-B2-A3,Apartment%20P1-B1-A1)")
+                .getSpecification();
+        assertEquals(2, apartmentRepository.findAll(spec).size());
+    }
+
+    @Test
+    void orChainOfEqualsBecomesSingleIndexedIn() {
+        // frontend gửi =in= dạng code==a,code==b,... (50 nhánh)
+        String query = IntStream.range(0, 50)
+                .mapToObj(i -> "code==P1-B1-A" + i)
+                .collect(Collectors.joining(","));
+        Specification<Apartment> spec = queryCache.compile(Apartment.class, query).getSpecification();
+
+        SqlCaptureInspector.clear();
+        assertEquals(40, apartmentRepository.findAll(spec).size());
+        String select = SqlCaptureInspector.statements().get(0).toLowerCase();
+        assertFalse(select.contains(" or "), select);
+        assertTrue(select.contains(" in ("), select);
+        assertTrue(planOf(query).contains("idx_apartment_code"));
+    }
+
+    @Test
+    void nestedSelectorUsesIndexOnJoinedTable() {
+        String plan = planOf("building.code==P1-B2");
+        assertTrue(plan.contains("idx_building_code"), plan);
+    }
+
+    @Test
+    void numericRangeIsComparedAsNumberThroughIndex() {
+        String plan = planOf("price=gt=1000000");
+        assertTrue(plan.contains("idx_apartment_price"), plan);
+        // so sánh chuỗi sẽ coi "900000.0" > "1000000"
+        assertEquals(5 * 29, apartmentRepository.findAll(
+                queryCache.compile(Apartment.class, "price=gt=1000000").getSpecification()).size());
+    }
+
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    void leadingWildcardCannotUseIndexAndIsRejected() {
+        String plan = planOf("code==*-A7");
+        assertFalse(plan.contains("idx_apartment_code"), plan);
+        assertThrows(AppException.class,
+                () -> queryGuard.checkQuery(queryCache.compile(Apartment.class, "code==*-A7").getCost()));
+    }
+
+    private String planOf(String query) {
+        SqlCaptureInspector.clear();
+        apartmentRepository.findAll(queryCache.compile(Apartment.class, query).getSpecification());
+        String select = SqlCaptureInspector.statements().stream()
+                .filter(sql -> sql.startsWith("select"))
+                .findFirst()
+                .orElseThrow();
+        return jdbcTemplate.queryForObject("EXPLAIN " + select, String.class).toLowerCase();
+    }
+}
@@ -0,0 +1,90 @@
+package com.stc.project.rsql;
+
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.SqlCaptureInspector;
+import com.stc.project.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Mỗi association path chỉ được join 1 lần dù có nhiều node so sánh dùng selector có dấu chấm
+@DataJpaTest
+@Import({RsqlSelectorRegistry.class, RsqlQueryCache.class})
+class RsqlJoinReuseTest {
+
+    private static final Pattern JOIN = Pattern.compile("\\b(inner|left|right)?\\s*(outer\\s+)?join\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private RsqlQueryCache queryCache;
+
+    @BeforeEach
+    void setUp() {
+        Project project = projectRepository.save(TestData.project("P1"));
+        Building building = buildingRepository.save(TestData.building(project, "P1-B1"));
+        apartmentRepository.saveAll(TestData.apartments(building, 3));
+    }
+
+    @Test
+    void sameAssociationIsJoinedOnce() {
+        List<String> joins = joinsOf("building.code==P1-B1*;building.name==Block*;building.active==1;code==P1*");
+
+        assertEquals(List.of("inner join building"), joins);
+    }
+
+    @Test
+    void nestedAssociationsAreJoinedOncePerPath() {
+        List<String> joins = joinsOf("building.code==P1-B1*;building.project.code==P1;building.project.name==Project*");
+
+        assertEquals(List.of("inner join building", "inner join project"), joins);
+    }
+
+    @Test
+    void orBranchesAndNegationsUseLeftJoin() {
+        List<String> joins = joinsOf("code==X*,building.code==P1-B1*,building.name!=Other");
+
+        assertEquals(List.of("left join building"), joins);
+    }
+
+    // chạy query trang đầu rồi trả về danh sách join trong câu SELECT lấy dữ liệu
+    private List<String> joinsOf(String query) {
+        SqlCaptureInspector.clear();
+        apartmentRepository.findAll(queryCache.compile(Apartment.class, query).getSpecification(), PageRequest.of(0, 2));
+        String select = SqlCaptureInspector.statements().stream()
+                .filter(sql -> sql.startsWith("select") && !sql.startsWith("select count"))
+                .findFirst()
+                .orElseThrow();
+        assertTrue(select.contains("from apartment"), select);
+
+        Matcher matcher = JOIN.matcher(select);
+        List<String> joins = new java.util.ArrayList<>();
+        while (matcher.find()) {
+            String type = matcher.group(1) == null ? "inner" : matcher.group(1).toLowerCase();
+            joins.add(type + " join " + matcher.group(3));
+        }
+        return joins;
+    }
+}
@@ -0,0 +1,66 @@
+package com.stc.project.rsql;
+
+import com.stc.project.exception.AppException;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Cùng 1 filter (khác khoảng trắng) chỉ biên dịch 1 lần, khóa cache không phụ thuộc người gọi
+@DataJpaTest
+@Import({RsqlSelectorRegistry.class, RsqlQueryCache.class})
+class RsqlQueryCacheTest {
+
+    @Autowired
+    private RsqlQueryCache queryCache;
+
+    @BeforeEach
+    void setUp() {
+        queryCache.clear();
+    }
+
+    @Test
+    void sameNormalizedQueryHitsCache() {
+        Map<String, Object> before = queryCache.stats();
+
+        CompiledRsqlQuery<Apartment> first = queryCache.compile(Apartment.class, "code==A1;atFloor=gt=3");
+        CompiledRsqlQuery<Apartment> second = queryCache.compile(Apartment.class, "code==A1; atFloor=gt=3");
+
+        assertSame(first, second);
+        assertSame(first.getSpecification(), second.getSpecification());
+        assertEquals(1L, (long) queryCache.stats().get("missCount") - (long) before.get("missCount"));
+        assertEquals(1L, (long) queryCache.stats().get("hitCount") - (long) before.get("hitCount"));
+    }
+
+    @Test
+    void differentQueryOrEntityMissesCache() {
+        Map<String, Object> before = queryCache.stats();
+
+        CompiledRsqlQuery<Apartment> apartment = queryCache.compile(Apartment.class, "code==A1");
+        CompiledRsqlQuery<Apartment> other = queryCache.compile(Apartment.class, "code==A2");
+        CompiledRsqlQuery<Building> building = queryCache.compile(Building.class, "code==A1");
+
+        assertNotSame(apartment, other);
+        assertNotSame(apartment.getSpecification(), building.getSpecification());
+        assertEquals(3L, (long) queryCache.stats().get("missCount") - (long) before.get("missCount"));
+        assertEquals(0L, (long) queryCache.stats().get("hitCount") - (long) before.get("hitCount"));
+    }
+
+    @Test
+    void unknownSelectorIsNotCached() {
+        assertThrows(AppException.class, () -> queryCache.compile(Apartment.class, "password==x"));
+        assertThrows(AppException.class, () -> queryCache.compile(Apartment.class, "password==x"));
+
+        assertEquals(0L, queryCache.stats().get("size"));
+    }
+}
\ No newline at end of file
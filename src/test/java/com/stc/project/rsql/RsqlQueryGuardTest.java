@@ -0,0 +1,118 @@
+package com.stc.project.rsql;
+
+import com.stc.project.exception.AppException;
+import com.stc.project.exception.ErrorCode;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Chi phí được tính trên AST, cùng 1 query có thể vừa ngân sách ADMIN nhưng vượt ngân sách MANAGER
+@DataJpaTest
+@Import({RsqlSelectorRegistry.class, RsqlQueryCache.class, RsqlQueryGuard.class})
+class RsqlQueryGuardTest {
+
+    // 80 nhánh OR trên cột không có index
+    private static final String HEAVY_QUERY = IntStream.range(0, 80)
+            .mapToObj(i -> "description==x" + i)
+            .collect(Collectors.joining(","));
+
+    @Autowired
+    private RsqlQueryCache queryCache;
+
+    @Autowired
+    private RsqlQueryGuard queryGuard;
+
+    @Autowired
+    private RsqlSelectorRegistry selectorRegistry;
+
+    @Test
+    void costCountsJoinsWildcardsAndUnindexedSelectors() {
+        RsqlQueryCost cost = queryCache.compile(Apartment.class, "code==A1;building.project.name==*X;atFloor=gt=3").getCost();
+
+        assertEquals(3, cost.getComparisons());
+        assertEquals(2, cost.getMaxJoinDepth());
+        assertEquals(1, cost.getLeadingWildcards());
+        assertEquals(1, cost.getUnindexedComparisons());
+    }
+
+    @Test
+    void uniqueColumnsCountAsIndexed() {
+        RsqlQueryCost cost = queryCache.compile(User.class, "username==u1,email==u1@x.vn,isVerified==true").getCost();
+
+        assertEquals(3, cost.getComparisons());
+        assertEquals(1, cost.getUnindexedComparisons());
+    }
+
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    void managerIsHeldToSmallerBudget() {
+        RsqlQueryCost cost = queryCache.compile(Apartment.class, HEAVY_QUERY).getCost();
+
+        AppException e = assertThrows(AppException.class, () -> queryGuard.checkQuery(cost));
+        assertEquals(ErrorCode.SEARCH_QUERY_TOO_COMPLEX, e.getErrorCode());
+        assertThrows(AppException.class, () -> queryGuard.checkPageSize(1000));
+        assertDoesNotThrow(() -> queryGuard.checkQuery(queryCache.compile(Apartment.class, "code==A1").getCost()));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void adminHasLargerBudget() {
+        assertDoesNotThrow(() -> queryGuard.checkPageSize(1000));
+        assertThrows(AppException.class, () -> queryGuard.checkQuery(queryCache.compile(Apartment.class, HEAVY_QUERY).getCost()));
+        assertDoesNotThrow(() -> queryGuard.checkQuery(queryCache.compile(Apartment.class, "code=in=(A1,A2,A3);name==Apt*").getCost()));
+    }
+
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    void managerCannotUseLeadingWildcard() {
+        RsqlQueryCost cost = queryCache.compile(Apartment.class, "code==*-A7").getCost();
+
+        AppException e = assertThrows(AppException.class, () -> queryGuard.checkQuery(cost));
+        assertEquals(ErrorCode.SEARCH_QUERY_TOO_COMPLEX, e.getErrorCode());
+        assertDoesNotThrow(() -> queryGuard.checkQuery(queryCache.compile(Apartment.class, "code==P1-A*").getCost()));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void adminGetsOneLeadingWildcard() {
+        assertDoesNotThrow(() -> queryGuard.checkQuery(queryCache.compile(Apartment.class, "code==*-A7").getCost()));
+        assertThrows(AppException.class, () -> queryGuard.checkQuery(
+                queryCache.compile(Apartment.class, "code==*-A7,name==*7").getCost()));
+    }
+
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    void managerAggregateGroupsAreCapped() {
+        assertEquals(1000, queryGuard.maxGroups());
+        assertDoesNotThrow(() -> queryGuard.checkGroups(1000));
+        AppException e = assertThrows(AppException.class, () -> queryGuard.checkGroups(1001));
+        assertEquals(ErrorCode.TOO_MANY_AGGREGATE_GROUPS, e.getErrorCode());
+    }
+
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    void managerExportSortMustUseIndex() {
+        AppException e = assertThrows(AppException.class, () -> queryGuard.checkExportSort(
+                List.of(selectorRegistry.resolve(Apartment.class, "code"), selectorRegistry.resolve(Apartment.class, "description"))));
+        assertEquals(ErrorCode.SEARCH_QUERY_TOO_COMPLEX, e.getErrorCode());
+        assertDoesNotThrow(() -> queryGuard.checkExportSort(List.of(selectorRegistry.resolve(Apartment.class, "building.code"))));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void adminMaySortExportByUnindexedColumn() {
+        assertDoesNotThrow(() -> queryGuard.checkExportSort(List.of(selectorRegistry.resolve(Apartment.class, "description"))));
+    }
+}
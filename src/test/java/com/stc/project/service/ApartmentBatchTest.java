@@ -0,0 +1,87 @@
+package com.stc.project.service;
+
+import com.stc.project.core.BatchResult;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.SqlCaptureInspector;
+import com.stc.project.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// POST /batch: phần tử lỗi không làm hỏng phần tử khác, tòa nhà được nạp 1 lần cho cả lô
+@SpringBootTest(properties = "crud.batch.chunk-size=3")
+class ApartmentBatchTest {
+
+    @Autowired
+    private ApartmentService apartmentService;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    private Building building;
+
+    @BeforeEach
+    void setUp() {
+        Project project = projectRepository.save(TestData.project("P1"));
+        building = buildingRepository.save(TestData.building(project, "P1-B1"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        apartmentRepository.deleteAllInBatch();
+        buildingRepository.deleteAllInBatch();
+        projectRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void createsValidItemsAndReportsInvalidOnes() {
+        List<Apartment> apartments = List.of(
+                apartment("P1-B1-A1", building.getId()),
+                apartment("X-A2", building.getId()),
+                apartment("P1-B1-A3", -1L),
+                apartment("P1-B1-A4", building.getId()),
+                apartment("P1-B1-A5", null));
+
+        SqlCaptureInspector.clear();
+        BatchResult result = apartmentService.createAll(apartments);
+
+        assertEquals(2, result.getSucceeded());
+        assertEquals(3, result.getFailed());
+        assertEquals(List.of(true, false, false, true, false),
+                result.getItems().stream().map(BatchResult.Item::isSuccess).collect(Collectors.toList()));
+        assertNotNull(result.getItems().get(0).getId());
+        assertFalse(result.getItems().get(2).getError().isEmpty());
+        assertEquals(2, apartmentRepository.count());
+        // 2 lô (3 + 2 phần tử), mỗi lô 1 câu SELECT tòa nhà, riêng id không tồn tại (-1) bị tra lại 1 lần
+        long buildingSelects = SqlCaptureInspector.statements().stream()
+                .filter(sql -> sql.startsWith("select") && sql.contains("from building"))
+                .count();
+        assertEquals(3, buildingSelects);
+    }
+
+    private Apartment apartment(String code, Long buildingId) {
+        Apartment apartment = TestData.apartment(null, code);
+        apartment.setBuildingId(buildingId);
+        return apartment;
+    }
+}
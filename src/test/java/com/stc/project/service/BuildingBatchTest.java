@@ -0,0 +1,80 @@
+package com.stc.project.service;
+
+import com.stc.project.core.BatchResult;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// PUT /batch: tòa nhà không qua validate bị báo lỗi và không để lại thay đổi nào, kể cả code căn hộ thuộc nó
+@SpringBootTest
+class BuildingBatchTest {
+
+    @Autowired
+    private BuildingService buildingService;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    private Project project;
+
+    private Building invalid;
+
+    private Building valid;
+
+    @BeforeEach
+    void setUp() {
+        project = projectRepository.save(TestData.project("P1"));
+        invalid = buildingRepository.save(TestData.building(project, "P1-B1"));
+        valid = buildingRepository.save(TestData.building(project, "P1-B2"));
+        apartmentRepository.saveAll(TestData.apartments(invalid, 3));
+        apartmentRepository.saveAll(TestData.apartments(valid, 3));
+    }
+
+    @AfterEach
+    void tearDown() {
+        apartmentRepository.deleteAllInBatch();
+        buildingRepository.deleteAllInBatch();
+        projectRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void invalidItemLeavesItsApartmentsUntouched() {
+        // "X-B1" không chứa code dự án nên bị từ chối, "P1-B9" hợp lệ
+        BatchResult result = buildingService.updateAll(List.of(
+                changedCode(invalid, "X-B1"),
+                changedCode(valid, "P1-B9")));
+
+        assertEquals(List.of(false, true),
+                result.getItems().stream().map(BatchResult.Item::isSuccess).collect(Collectors.toList()));
+        assertEquals("P1-B1", buildingRepository.findById(invalid.getId()).orElseThrow().getCode());
+        assertEquals(List.of("P1-B1-A0", "P1-B1-A1", "P1-B1-A2", "P1-B9-A0", "P1-B9-A1", "P1-B9-A2"),
+                apartmentRepository.findAll().stream().map(Apartment::getCode).sorted().collect(Collectors.toList()));
+    }
+
+    private Building changedCode(Building building, String code) {
+        Building changed = TestData.building(null, code);
+        changed.setId(building.getId());
+        changed.setProjectId(project.getId());
+        return changed;
+    }
+}
@@ -0,0 +1,91 @@
+package com.stc.project.service;
+
+import com.stc.project.constants.Constants;
+import com.stc.project.core.EntityCacheStats;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Second-level cache: đọc lại Building không chạm DB, cascade trạng thái bằng UPDATE hàng loạt không để lại dữ liệu cũ
+@SpringBootTest
+class EntityCacheTest {
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private EntityCacheStats entityCacheStats;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Project project;
+
+    private Building building;
+
+    @BeforeEach
+    void setUp() {
+        project = projectRepository.save(TestData.project("P1"));
+        building = buildingRepository.save(TestData.building(project, "P1-B1"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        apartmentRepository.deleteAllInBatch();
+        buildingRepository.deleteAllInBatch();
+        projectRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void repeatedReadsAreServedFromCache() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        buildingRepository.findById(building.getId()).orElseThrow();
+
+        statistics.clear();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("P1-B1", buildingRepository.findById(building.getId()).orElseThrow().getCode());
+        }
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        Map<String, Object> region = (Map<String, Object>) entityCacheStats.stats().get("building");
+        assertEquals(3L, region.get("hitCount"));
+        assertEquals(1.0, region.get("hitRate"));
+    }
+
+    @Test
+    void bulkCascadeEvictsCachedBuildings() {
+        assertEquals(Constants.EntityStatus.ACTIVE, buildingRepository.findById(building.getId()).orElseThrow().getActive());
+        assertTrue(entityManagerFactory.getCache().contains(Building.class, building.getId()));
+
+        projectService.deactivate(project.getId());
+
+        assertEquals(Constants.EntityStatus.DEACTIVATED, buildingRepository.findById(building.getId()).orElseThrow().getActive());
+        assertEquals(Constants.EntityStatus.DEACTIVATED, projectRepository.findById(project.getId()).orElseThrow().getActive());
+    }
+}
@@ -0,0 +1,43 @@
+package com.stc.project.service;
+
+import com.stc.project.exception.AppException;
+import com.stc.project.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Sort của /export được kiểm tra trên thread của request (400 rõ ràng) thay vì lỗi giữa chừng khi đang ghi file
+@SpringBootTest
+class ExportSortTest {
+
+    @Autowired
+    private ApartmentService apartmentService;
+
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    void unknownOrAssociationSortIsRejected() {
+        for (String property : new String[]{"foo", "building", "createdBy.password"}) {
+            AppException e = assertThrows(AppException.class, () -> apartmentService.exportSort(Sort.by(property)));
+            assertEquals(ErrorCode.UNKNOWN_SEARCH_FIELD, e.getErrorCode(), property);
+        }
+    }
+
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    void unindexedSortIsRejectedForManager() {
+        AppException e = assertThrows(AppException.class, () -> apartmentService.exportSort(Sort.by("description")));
+        assertEquals(ErrorCode.SEARCH_QUERY_TOO_COMPLEX, e.getErrorCode());
+        assertEquals(Sort.by(Sort.Direction.DESC, "code"), apartmentService.exportSort(Sort.by(Sort.Direction.DESC, "code")));
+    }
+
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    void unsortedExportFollowsPrimaryKey() {
+        assertEquals(Sort.by("id"), apartmentService.exportSort(Sort.unsorted()));
+    }
+}
@@ -0,0 +1,105 @@
+package com.stc.project.service;
+
+import com.stc.project.core.ImportJob;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Import nền: dòng lỗi được ghi vào báo cáo kèm số dòng, các dòng hợp lệ vẫn được ghi theo lô
+@SpringBootTest(properties = "import.batch-size=2")
+class ImportServiceTest {
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @BeforeEach
+    void setUp() {
+        Project project = projectRepository.save(TestData.project("P1"));
+        buildingRepository.save(TestData.building(project, "P1-B1"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        apartmentRepository.deleteAllInBatch();
+        buildingRepository.deleteAllInBatch();
+        projectRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void importsCsvAndReportsBadRows() throws Exception {
+        String csv = "code,name,buildingCode,price,description\n"
+                + "P1-B1-A1,Apartment 1,p1-b1,100,\n"
+                + "P1-B1-A2,\"Apartment 2, corner\",P1-B1,,\"two\nlines\"\n"
+                + "P1-B1-A3,Apartment 3,P9-B9,100,\n"
+                + "X-A4,Apartment 4,P1-B1,100,\n"
+                + "P1-B1-A5,Apartment 5,P1-B1,abc,\n"
+                + "P1-B1-A6,Apartment 6\n"
+                + "P1-B1-A7,Apartment 7,P1-B1,120.5,\n";
+
+        ImportJob job = await(importService.importApartments(stream(csv), "csv"));
+
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(7, job.getRows());
+        assertEquals(3, job.getImported());
+        assertEquals(4, job.getFailed());
+        assertEquals(List.of(5L, 6L, 7L, 8L), job.getErrors().stream().map(ImportJob.RowError::getLine).collect(Collectors.toList()));
+
+        List<Apartment> apartments = apartmentRepository.findAll();
+        assertEquals(List.of("P1-B1-A1", "P1-B1-A2", "P1-B1-A7"),
+                apartments.stream().map(Apartment::getCode).sorted().collect(Collectors.toList()));
+        Apartment corner = apartments.stream().filter(a -> a.getCode().equals("P1-B1-A2")).findFirst().orElseThrow();
+        assertEquals("Apartment 2, corner", corner.getName());
+        assertEquals("two\nlines", corner.getDescription());
+    }
+
+    @Test
+    void importsNdjsonAndSkipsMalformedLines() throws Exception {
+        String ndjson = "{\"code\":\"P1-B2\",\"name\":\"Block 2\",\"projectCode\":\"P1\"}\n"
+                + "not json\n"
+                + "\n"
+                + "{\"code\":\"P1-B3\",\"name\":\"Block 3\",\"projectCode\":\"P1\",\"numberOfFloors\":null}\n";
+
+        ImportJob job = await(importService.importBuildings(stream(ndjson), "ndjson"));
+
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(2, job.getImported());
+        assertEquals(1, job.getFailed());
+        assertEquals(2L, job.getErrors().get(0).getLine());
+        assertEquals(3, buildingRepository.count());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ImportJob await(ImportJob job) throws InterruptedException {
+        for (int i = 0; i < 200 && job.getStatus() == ImportJob.Status.RUNNING; i++) {
+            Thread.sleep(50);
+        }
+        return job;
+    }
+}
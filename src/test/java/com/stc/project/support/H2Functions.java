@@ -0,0 +1,15 @@
+package com.stc.project.support;
+
+import java.nio.charset.StandardCharsets;
+
+// Hàm MySQL mà H2 (MODE=MySQL) không có, đăng ký qua INIT trong URL datasource của test (db/h2-functions.sql)
+public final class H2Functions {
+
+    private H2Functions() {
+    }
+
+    // BINARY(col) của MySQL: so sánh từng byte, không theo collation
+    public static byte[] binary(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,64 @@
+package com.stc.project.support;
+
+import com.stc.project.constants.Constants;
+import com.stc.project.model.Apartment;
+import com.stc.project.model.Building;
+import com.stc.project.model.Project;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Dữ liệu mẫu dùng chung cho test: dự án -> tòa nhà -> căn hộ, code dạng P1 / P1-B1 / P1-B1-A0.
+// Chỉ tạo object (chưa lưu): test tự lưu bằng repository của mình và set thêm các trường riêng cho từng trường hợp
+public final class TestData {
+
+    private TestData() {
+    }
+
+    public static Project project(String code) {
+        return project(code, Constants.EntityStatus.ACTIVE);
+    }
+
+    public static Project project(String code, int active) {
+        Project project = new Project();
+        project.setCode(code);
+        project.setName("Project " + code);
+        project.setActive(active);
+        return project;
+    }
+
+    public static Building building(Project project, String code) {
+        return building(project, code, Constants.EntityStatus.ACTIVE);
+    }
+
+    public static Building building(Project project, String code, int active) {
+        Building building = new Building();
+        building.setCode(code);
+        building.setName("Block " + code);
+        building.setActive(active);
+        building.setProject(project);
+        return building;
+    }
+
+    public static Apartment apartment(Building building, String code) {
+        return apartment(building, code, Constants.EntityStatus.ACTIVE);
+    }
+
+    public static Apartment apartment(Building building, String code, int active) {
+        Apartment apartment = new Apartment();
+        apartment.setCode(code);
+        apartment.setName("Apartment " + code);
+        apartment.setActive(active);
+        apartment.setBuilding(building);
+        return apartment;
+    }
+
+    // count căn hộ ACTIVE của tòa nhà, code <code tòa nhà>-A0 .. -A(count-1)
+    public static List<Apartment> apartments(Building building, int count) {
+        List<Apartment> apartments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            apartments.add(apartment(building, building.getCode() + "-A" + i));
+        }
+        return apartments;
+    }
+}
@@ -0,0 +1 @@
+CREATE ALIAS IF NOT EXISTS BINARY DETERMINISTIC FOR 'com.stc.project.support.H2Functions.binary';